@@ -0,0 +1,64 @@
+package com.ms.order.config;
+
+import com.ms.order.dto.CheckoutEvent;
+import com.ms.order.dto.UpdateStockEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization of the checkout path messages through the converter configured in {@link RabbitMQConfig}:
+ * the CheckoutEvent read from cart.checkout and the UpdateStockEvent written for ProductService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageConverterBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    private Jackson2JsonMessageConverter converter;
+
+    private Message checkoutMessage;
+
+    private UpdateStockEvent updateStockEvent;
+
+    @Setup
+    public void setUp() {
+        converter = new RabbitMQConfig().jackson2JsonMessageConverter();
+
+        List<CheckoutEvent.CheckoutItem> items = new ArrayList<>(itemCount);
+        Map<Long, Integer> productQuantities = new HashMap<>();
+        for (long productId = 1; productId <= itemCount; productId++) {
+            items.add(new CheckoutEvent.CheckoutItem(productId, 2));
+            productQuantities.put(productId, 2);
+        }
+        checkoutMessage = converter.toMessage(new CheckoutEvent(1L, 7L, "PIX", items), new MessageProperties());
+        updateStockEvent = new UpdateStockEvent(1L, 7L, 1L, productQuantities);
+    }
+
+    @Benchmark
+    public Object readCheckoutEvent() {
+        return converter.fromMessage(checkoutMessage);
+    }
+
+    @Benchmark
+    public Message writeUpdateStockEvent() {
+        return converter.toMessage(updateStockEvent, new MessageProperties());
+    }
+}
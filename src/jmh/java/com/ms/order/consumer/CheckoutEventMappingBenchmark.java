@@ -0,0 +1,50 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.CheckoutEvent;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.UpdateStockEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a CheckoutEvent to the order creation data and to the UpdateStockEvent, by number of items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CheckoutEventMappingBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    private CheckoutEvent event;
+
+    @Setup
+    public void setUp() {
+        List<CheckoutEvent.CheckoutItem> items = new ArrayList<>(itemCount);
+        for (long productId = 1; productId <= itemCount; productId++) {
+            items.add(new CheckoutEvent.CheckoutItem(productId, 2));
+        }
+        event = new CheckoutEvent(1L, 7L, "PIX", items);
+    }
+
+    @Benchmark
+    public CreateOrderDTO toCreateOrderDTO() {
+        return CheckoutEventMapper.toCreateOrderDTO(event);
+    }
+
+    @Benchmark
+    public UpdateStockEvent toUpdateStockEvent() {
+        return CheckoutEventMapper.toUpdateStockEvent(event, 1L);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ms.order.service;
+
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO assembly of one order and of a page of orders, by number of items per order.
+ * Legacy orders (no snapshot) go through the product lookup, served by a warm catalog cache
+ * in front of an in-memory ProductService stub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderDTOAssemblyBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    @Param({"true", "false"})
+    private boolean snapshot;
+
+    private OrderDTOAssembler assembler;
+
+    private Order order;
+
+    private List<Order> page;
+
+    @Setup
+    public void setUp() {
+        ProductService productService = ids -> ids.stream()
+                .map(id -> new InternalProductDTO(id, "Product " + id, "Description", BigDecimal.valueOf(id, 2), 100))
+                .toList();
+        ProductCatalogCache productCatalogCache = new ProductCatalogCache(10_000, Duration.ofHours(1), Duration.ofHours(1));
+        ResilientProductClient productClient = new ResilientProductClient(productService, 50, Duration.ZERO, 50,
+                Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ZERO);
+        ProductLookupBatcher productLookupBatcher = new ProductLookupBatcher(productClient, Duration.ZERO, 100, 16);
+        assembler = new OrderDTOAssembler(new ProductLookupService(productLookupBatcher, productCatalogCache));
+
+        page = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            page.add(order(id));
+        }
+        order = page.getFirst();
+    }
+
+    @Benchmark
+    public OrderDTO singleOrder() {
+        return assembler.toOrderDTO(order);
+    }
+
+    @Benchmark
+    public List<OrderDTO> page() {
+        return assembler.toOrderDTOs(page);
+    }
+
+    private Order order(long id) {
+        Order order = Order.builder()
+                .id(id)
+                .userId(7L)
+                .status(OrderStatus.PENDING)
+                .paymentMethod(PaymentMethod.PIX)
+                .items(new ArrayList<>(itemCount))
+                .version(0L)
+                .createdAt(LocalDateTime.now())
+                .build();
+        for (long productId = 1; productId <= itemCount; productId++) {
+            OrderItem item = snapshot
+                    ? new OrderItem(productId, 2, "Product " + productId, BigDecimal.valueOf(productId, 2))
+                    : new OrderItem(productId, 2);
+            item.setId(id * 1_000 + productId);
+            item.setOrder(order);
+            order.getItems().add(item);
+        }
+        order.updateTotals();
+        return order;
+    }
+}
@@ -1,9 +1,18 @@
 package com.ms.order.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,19 +22,77 @@ public class RabbitMQConfig {
     @Value("${broker.queue.order.checkout.name}")
     private String checkoutQueue;
 
+    @Value("${broker.queue.order.checkout-dlq.name}")
+    private String checkoutDeadLetterQueue;
+
     @Value("${broker.queue.order.stock-update-failed.name}")
     private String stockUpdateFailedQueue;
 
+    @Value("${broker.queue.order.status-update.name}")
+    private String statusUpdateQueue;
+
+    @Value("${broker.exchange.product.changed.name}")
+    private String productChangedExchange;
+
+    @Value("${broker.exchange.order.status-changed.name}")
+    private String orderStatusChangedExchange;
+
     @Bean
     public Queue checkoutQueue() {
         return new Queue(checkoutQueue, true);
     }
 
+    @Bean
+    public Queue checkoutDeadLetterQueue() {
+        return new Queue(checkoutDeadLetterQueue, true);
+    }
+
     @Bean
     public Queue stockUpdateFailedQueue() {
         return new Queue(stockUpdateFailedQueue, true);
     }
 
+    @Bean
+    public Queue statusUpdateQueue() {
+        return new Queue(statusUpdateQueue, true);
+    }
+
+    @Bean
+    public FanoutExchange productChangedExchange() {
+        return new FanoutExchange(productChangedExchange, true, false);
+    }
+
+    /**
+     * Exclusive, auto-delete queue per instance: each replica receives every product change.
+     */
+    @Bean
+    public Queue productChangedQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding productChangedBinding(Queue productChangedQueue, FanoutExchange productChangedExchange) {
+        return BindingBuilder.bind(productChangedQueue).to(productChangedExchange);
+    }
+
+    @Bean
+    public FanoutExchange orderStatusChangedExchange() {
+        return new FanoutExchange(orderStatusChangedExchange, true, false);
+    }
+
+    /**
+     * Exclusive, auto-delete queue per instance: each replica receives every order status change.
+     */
+    @Bean
+    public Queue orderStatusChangedQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding orderStatusChangedBinding(Queue orderStatusChangedQueue, FanoutExchange orderStatusChangedExchange) {
+        return BindingBuilder.bind(orderStatusChangedQueue).to(orderStatusChangedExchange);
+    }
+
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
         ObjectMapper objectMapper = new ObjectMapper();
@@ -33,4 +100,37 @@ public class RabbitMQConfig {
         objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         return new Jackson2JsonMessageConverter(objectMapper);
     }
+
+    /**
+     * Publishing uses its own connection and channel cache, so a burst of unconfirmed
+     * messages never competes with the listener channels.
+     */
+    @Bean
+    public RabbitTemplateCustomizer publisherConnectionCustomizer() {
+        return template -> template.setUsePublisherConnection(true);
+    }
+
+    /**
+     * Container factory for the batched checkout consumer: a batch is delivered when it reaches
+     * app.checkout.batch.size messages or after app.checkout.batch.timeout-ms, whichever comes first.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.checkout.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory checkoutBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.checkout.batch.size:100}") int batchSize,
+            @Value("${app.checkout.batch.timeout-ms:200}") long batchTimeout,
+            @Value("${app.checkout.batch.concurrency:1}") int concurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(batchTimeout);
+        factory.setPrefetchCount(batchSize);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(concurrency);
+        return factory;
+    }
 }
@@ -1,6 +1,7 @@
 package com.ms.order.config;
 
 import com.ms.order.auth.GatewayAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,12 +32,19 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Despachos async/erro de streams (SSE, export) já foram autorizados na requisição original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                         // Public endpoints (para acesso via Swagger UI local)
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                         .requestMatchers("POST", "/orders/create").permitAll() // Para comunicação entre serviços
                         
                         // User endpoints
                         .requestMatchers("GET", "/orders/user").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("GET", "/orders/user/scroll").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("GET", "/orders/user/summary").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("GET", "/orders/user/stream").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("GET", "/orders/{id}/events").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("POST", "/orders/{id}/cancel").hasAnyRole("USER", "ADMIN")
                         
                         // Admin endpoints
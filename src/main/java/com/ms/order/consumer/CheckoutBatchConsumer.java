@@ -0,0 +1,160 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.CheckoutEvent;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.service.OrderService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Batched alternative to {@link OrderConsumer#handleCheckoutEvent}, enabled with app.checkout.batch.enabled=true.
+ *
+ * All orders of a batch and their UpdateStockEvents (through the outbox) are written in a single
+ * transaction, and the whole batch is acked when the listener returns.
+ * Messages that cannot be read or turned into an order are sent to the checkout dead-letter queue
+ * without failing the rest of the batch. Checkouts of carts that already have an order are acked and skipped.
+ * The batch is acked only once the broker confirmed every dead letter; otherwise the listener fails and
+ * the whole batch is requeued, its orders already created being skipped as duplicates on redelivery.
+ */
+@Component
+@AllArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.checkout.batch.enabled", havingValue = "true")
+public class CheckoutBatchConsumer {
+
+    private final OrderService orderService;
+
+    private final OrderProducer orderProducer;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Jackson2JsonMessageConverter messageConverter;
+
+    @RabbitListener(queues = "${broker.queue.order.checkout.name}", containerFactory = "checkoutBatchContainerFactory")
+    public void handleCheckoutEvents(List<Message> messages) {
+        log.info("Received batch of {} CheckoutEvents", messages.size());
+        BatchOutcome outcome = new BatchOutcome();
+
+        List<Message> readable = new ArrayList<>(messages.size());
+        List<CheckoutEvent> readEvents = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                readEvents.add(readEvent(message));
+                readable.add(message);
+            } catch (Exception e) {
+                log.error("Unreadable CheckoutEvent, sending to dead-letter queue", e);
+                deadLetter(message, e, outcome);
+            }
+        }
+
+        // Redeliveries, and repeated carts within the batch, are dropped before any insert
+        Set<Long> seenCarts = orderService.findProcessedCartIds(readEvents.stream().map(CheckoutEvent::cartId).toList());
+        List<Message> accepted = new ArrayList<>(readable.size());
+        List<CheckoutEvent> events = new ArrayList<>(readable.size());
+        for (int i = 0; i < readEvents.size(); i++) {
+            CheckoutEvent event = readEvents.get(i);
+            if (event.cartId() != null && !seenCarts.add(event.cartId())) {
+                outcome.duplicates++;
+                continue;
+            }
+            events.add(event);
+            accepted.add(readable.get(i));
+        }
+        if (outcome.duplicates > 0) {
+            log.warn("Ignored {} duplicate CheckoutEvents", outcome.duplicates);
+        }
+
+        if (!events.isEmpty()) {
+            try {
+                outcome.created += transactionTemplate.execute(status -> createOrders(events));
+            } catch (Exception e) {
+                log.warn("Checkout batch of {} events failed, retrying them one by one", events.size(), e);
+                createOrdersIsolatingFailures(accepted, events, outcome);
+            }
+        }
+
+        awaitDeadLetters(outcome);
+
+        log.info("Checkout batch processed. Orders created: {}, Duplicates: {}, Dead-lettered: {}",
+                outcome.created, outcome.duplicates, outcome.deadLettered);
+    }
+
+    private CheckoutEvent readEvent(Message message) {
+        message.getMessageProperties().setInferredArgumentType(CheckoutEvent.class);
+        return (CheckoutEvent) messageConverter.fromMessage(message);
+    }
+
+    private int createOrders(List<CheckoutEvent> events) {
+        List<CreateOrderDTO> ordersData = events.stream()
+                .map(CheckoutEventMapper::toCreateOrderDTO)
+                .toList();
+
+        List<OrderDTO> orders = orderService.createOrders(ordersData);
+
+        for (int i = 0; i < orders.size(); i++) {
+            orderService.publishUpdateStockEvent(CheckoutEventMapper.toUpdateStockEvent(events.get(i), orders.get(i).id()));
+        }
+        return orders.size();
+    }
+
+    private void createOrdersIsolatingFailures(List<Message> messages, List<CheckoutEvent> events, BatchOutcome outcome) {
+        for (int i = 0; i < events.size(); i++) {
+            CheckoutEvent event = events.get(i);
+            try {
+                outcome.created += transactionTemplate.execute(status -> createOrders(List.of(event)));
+            } catch (DataIntegrityViolationException e) {
+                if (DuplicateCheckouts.isDuplicateCart(e) || orderService.isCheckoutProcessed(event.cartId())) {
+                    // Created concurrently by another consumer: nothing to do
+                    log.warn("Duplicate CheckoutEvent ignored, cart {} was processed concurrently", event.cartId());
+                    outcome.duplicates++;
+                    continue;
+                }
+                log.error("Error processing CheckoutEvent for cart: {}, sending to dead-letter queue", event.cartId(), e);
+                deadLetter(messages.get(i), e, outcome);
+            } catch (Exception e) {
+                log.error("Error processing CheckoutEvent for cart: {}, sending to dead-letter queue", event.cartId(), e);
+                deadLetter(messages.get(i), e, outcome);
+            }
+        }
+    }
+
+    private void deadLetter(Message message, Exception cause, BatchOutcome outcome) {
+        outcome.deadLetters.add(orderProducer.publishCheckoutDeadLetter(message, cause));
+        outcome.deadLettered++;
+    }
+
+    private static void awaitDeadLetters(BatchOutcome outcome) {
+        try {
+            CompletableFuture.allOf(outcome.deadLetters.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // Not a reject: the batch goes back to the queue instead of being acked
+            throw new AmqpException("Dead letters of the checkout batch were not confirmed, requeueing it", e.getCause());
+        }
+    }
+
+    private static final class BatchOutcome {
+        private int created;
+
+        private int duplicates;
+
+        private int deadLettered;
+
+        private final List<CompletableFuture<Void>> deadLetters = new ArrayList<>();
+    }
+}
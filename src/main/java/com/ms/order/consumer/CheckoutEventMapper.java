@@ -0,0 +1,51 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.CheckoutEvent;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.UpdateStockEvent;
+import com.ms.order.enums.PaymentMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maps CheckoutEvents received from CartService to order creation data
+ * and to the UpdateStockEvent published once the order exists.
+ */
+final class CheckoutEventMapper {
+
+    private CheckoutEventMapper() {
+    }
+
+    static CreateOrderDTO toCreateOrderDTO(CheckoutEvent event) {
+        List<CreateOrderDTO.CreateOrderItemDTO> items = event.items().stream()
+                .map(item -> new CreateOrderDTO.CreateOrderItemDTO(
+                        item.productId(),
+                        item.quantity()
+                ))
+                .toList();
+
+        return new CreateOrderDTO(
+                event.userId(),
+                items,
+                PaymentMethod.valueOf(event.paymentMethod()),
+                event.cartId()
+        );
+    }
+
+    static UpdateStockEvent toUpdateStockEvent(CheckoutEvent event, Long orderId) {
+        Map<Long, Integer> productQuantities = event.items().stream()
+                .collect(Collectors.toMap(
+                        CheckoutEvent.CheckoutItem::productId,
+                        CheckoutEvent.CheckoutItem::quantity
+                ));
+
+        return new UpdateStockEvent(
+                event.cartId(),
+                event.userId(),
+                orderId, // Include orderId for potential rollback
+                productQuantities
+        );
+    }
+}
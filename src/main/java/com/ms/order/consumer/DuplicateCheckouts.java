@@ -0,0 +1,29 @@
+package com.ms.order.consumer;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Locale;
+
+/**
+ * Recognizes the failure of an insert that lost the race for a cart to another consumer.
+ */
+final class DuplicateCheckouts {
+    private static final String CART_CONSTRAINT = "uk_orders_cart_id";
+
+    private DuplicateCheckouts() {
+    }
+
+    /**
+     * Whether the exception comes from the uk_orders_cart_id unique constraint. Drivers report the name
+     * differently (H2 upper-cases and decorates it), so it is matched loosely.
+     */
+    static boolean isDuplicateCart(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(CART_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,19 +1,22 @@
 package com.ms.order.consumer;
 
 import com.ms.order.dto.CheckoutEvent;
-import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.OrderStatusUpdateEvent;
+import com.ms.order.dto.StatusTransitionResult;
 import com.ms.order.dto.StockUpdateFailedEvent;
-import com.ms.order.dto.UpdateStockEvent;
 import com.ms.order.service.OrderService;
-import java.util.List;
+import com.ms.order.service.OrderStatusBulkService;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -24,49 +27,42 @@ public class OrderConsumer {
 
     private final OrderService orderService;
 
-    @RabbitListener(queues = "${broker.queue.order.checkout.name}")
-    @Transactional
+    private final OrderStatusBulkService orderStatusBulkService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * One order per message. Replaced by {@link CheckoutBatchConsumer} when app.checkout.batch.enabled=true.
+     * Redelivered checkouts of a cart that already has an order are acked without doing anything.
+     */
+    @RabbitListener(queues = "${broker.queue.order.checkout.name}", autoStartup = "#{!${app.checkout.batch.enabled:false}}")
     public void handleCheckoutEvent(@Payload CheckoutEvent event) {
         log.info("Received CheckoutEvent: cartId={}, userId={}, items={}", 
                  event.cartId(), event.userId(), event.items().size());
 
-        try {
-            // Convert CheckoutEvent to CreateOrderDTO
-            List<CreateOrderDTO.CreateOrderItemDTO> items = event.items().stream()
-                    .map(item -> new CreateOrderDTO.CreateOrderItemDTO(
-                            item.productId(),
-                            item.quantity()
-                    ))
-                    .toList();
-
-            CreateOrderDTO orderData = new CreateOrderDTO(
-                    event.userId(),
-                    items,
-                    com.ms.order.enums.PaymentMethod.valueOf(event.paymentMethod())
-            );
+        if (orderService.isCheckoutProcessed(event.cartId())) {
+            log.warn("Duplicate CheckoutEvent ignored, cart {} already has an order", event.cartId());
+            return;
+        }
 
-            // Create order
-            var order = orderService.createOrder(orderData);
+        try {
+            // Order and UpdateStockEvent (via the outbox) are committed together
+            var order = transactionTemplate.execute(status -> {
+                var created = orderService.createOrder(CheckoutEventMapper.toCreateOrderDTO(event));
+                orderService.publishUpdateStockEvent(CheckoutEventMapper.toUpdateStockEvent(event, created.id()));
+                return created;
+            });
             log.info("Order created successfully from CheckoutEvent. OrderId: {}, UserId: {}", 
                      order.id(), order.userId());
 
-            // Publish UpdateStockEvent to update product stock
-            Map<Long, Integer> productQuantities = event.items().stream()
-                    .collect(Collectors.toMap(
-                            CheckoutEvent.CheckoutItem::productId,
-                            CheckoutEvent.CheckoutItem::quantity
-                    ));
-
-            UpdateStockEvent stockEvent = new UpdateStockEvent(
-                    event.cartId(),
-                    event.userId(),
-                    order.id(), // Include orderId for potential rollback
-                    productQuantities
-            );
-
-            orderService.publishUpdateStockEvent(stockEvent);
-            log.info("UpdateStockEvent published for order: {}", order.id());
-
+        } catch (DataIntegrityViolationException e) {
+            // Another consumer created the order of this cart concurrently
+            if (DuplicateCheckouts.isDuplicateCart(e) || orderService.isCheckoutProcessed(event.cartId())) {
+                log.warn("Duplicate CheckoutEvent ignored, cart {} was processed concurrently", event.cartId());
+                return;
+            }
+            log.error("Error processing CheckoutEvent for cart: {}", event.cartId(), e);
+            throw new AmqpRejectAndDontRequeueException("Failed to process checkout", e);
         } catch (Exception e) {
             log.error("Error processing CheckoutEvent for cart: {}", event.cartId(), e);
             // Rejeita e não re enfileira para evitar 'loop' infinito
@@ -74,6 +70,26 @@ public class OrderConsumer {
         }
     }
 
+    /**
+     * Status changes pushed by fulfillment systems, many orders per message.
+     * Rejected items (unknown order, transition not allowed) are logged and do not fail the message.
+     */
+    @RabbitListener(queues = "${broker.queue.order.status-update.name}")
+    public void handleOrderStatusUpdateEvent(@Payload OrderStatusUpdateEvent event) {
+        log.info("Received OrderStatusUpdateEvent with {} transitions",
+                event.transitions() == null ? 0 : event.transitions().size());
+
+        try {
+            List<StatusTransitionResult> results = orderStatusBulkService.transition(event.transitions());
+            Map<StatusTransitionResult.Outcome, Long> outcomes = results.stream()
+                    .collect(Collectors.groupingBy(StatusTransitionResult::outcome, Collectors.counting()));
+            log.info("OrderStatusUpdateEvent processed. Outcomes: {}", outcomes);
+        } catch (Exception e) {
+            log.error("Error processing OrderStatusUpdateEvent", e);
+            throw new AmqpRejectAndDontRequeueException("Failed to process status update", e);
+        }
+    }
+
     @RabbitListener(queues = "${broker.queue.order.stock-update-failed.name}")
     @Transactional
     public void handleStockUpdateFailedEvent(@Payload StockUpdateFailedEvent event) {
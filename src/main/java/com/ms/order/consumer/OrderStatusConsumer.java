@@ -0,0 +1,35 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.OrderStatusChangedBatch;
+import com.ms.order.dto.OrderStatusChangedEvent;
+import com.ms.order.service.OrderDTOCache;
+import com.ms.order.service.OrderStatusStreamService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+@Component
+@AllArgsConstructor
+@Slf4j
+public class OrderStatusConsumer {
+
+    private final OrderDTOCache orderDTOCache;
+
+    private final OrderStatusStreamService orderStatusStreamService;
+
+    /**
+     * Every instance listens on its own queue bound to the order status fanout exchange,
+     * so a status change on any replica evicts the order from the cache of all of them
+     * and reaches the status streams open on any of them.
+     */
+    @RabbitListener(queues = "#{orderStatusChangedQueue.name}")
+    public void handleOrderStatusChanged(@Payload OrderStatusChangedBatch batch) {
+        log.debug("Received OrderStatusChangedBatch with {} changes", batch.events().size());
+        for (OrderStatusChangedEvent event : batch.events()) {
+            orderDTOCache.invalidate(event.orderId());
+            orderStatusStreamService.publish(event);
+        }
+    }
+}
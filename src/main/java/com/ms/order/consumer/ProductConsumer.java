@@ -0,0 +1,27 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.ProductChangedEvent;
+import com.ms.order.service.ProductCatalogCache;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+@Component
+@AllArgsConstructor
+@Slf4j
+public class ProductConsumer {
+
+    private final ProductCatalogCache productCatalogCache;
+
+    /**
+     * Every instance listens on its own queue bound to the product fanout exchange,
+     * so a change evicts the product from the cache of all replicas.
+     */
+    @RabbitListener(queues = "#{productChangedQueue.name}")
+    public void handleProductChangedEvent(@Payload ProductChangedEvent event) {
+        log.info("Received ProductChangedEvent: productId={}", event.productId());
+        productCatalogCache.invalidate(event.productId());
+    }
+}
@@ -1,16 +1,39 @@
 package com.ms.order.controller;
 
 import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderExportFilter;
+import com.ms.order.dto.OrderListVersion;
+import com.ms.order.dto.OrderPageDTO;
+import com.ms.order.dto.OrderStatsDTO;
+import com.ms.order.dto.OrderVersion;
+import com.ms.order.dto.StatusTransitionRequest;
+import com.ms.order.dto.StatusTransitionResult;
+import com.ms.order.dto.UserOrderSummaryDTO;
+import com.ms.order.enums.ExportFormat;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.StatsGranularity;
+import com.ms.order.service.OrderExportService;
 import com.ms.order.service.OrderService;
+import com.ms.order.service.OrderStatsService;
+import com.ms.order.service.OrderStatusBulkService;
+import com.ms.order.service.OrderStatusStreamService;
+import com.ms.order.service.UserOrderSummaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +42,11 @@ import java.util.List;
 @Tag(name = "Orders", description = "Order management endpoints")
 public class OrderController {
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final OrderStatusStreamService orderStatusStreamService;
+    private final OrderStatusBulkService orderStatusBulkService;
+    private final UserOrderSummaryService userOrderSummaryService;
+    private final OrderStatsService orderStatsService;
     private final com.ms.order.auth.CurrentUserService currentUserService;
 
     @GetMapping()
@@ -29,24 +57,112 @@ public class OrderController {
         return orderService.getAllOrders(pageable);
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Get all orders, newest first, with cursor pagination")
+    public OrderPageDTO scrollAllOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size){
+        return orderService.scrollAllOrders(after, size);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Stream orders as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to){
+        ExportFormat exportFormat = ExportFormat.from(format);
+        OrderExportFilter filter = new OrderExportFilter(status, userId, from, to);
+
+        StreamingResponseBody body = outputStream -> orderExportService.export(filter, exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/analytics")
+    @Operation(summary = "Order volume, revenue, cancellation rate and payment method mix over time",
+            description = "Read from pre-aggregated buckets; without granularity the finest one available is used")
+    public OrderStatsDTO getOrderStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) StatsGranularity granularity){
+        return orderStatsService.findStats(from, to, granularity);
+    }
+
     @GetMapping("/{id}")
-    @Operation(summary = "Get order by ID")
-    public OrderDTO findById(@PathVariable Long id){
-        return orderService.findById(id);
+    @Operation(summary = "Get order by ID", description = "Supports If-None-Match / If-Modified-Since")
+    public OrderDTO findById(@PathVariable Long id, WebRequest request){
+        // Decided from the version alone: a 304 loads no items and calls no other service
+        OrderVersion version = orderService.findVersion(id);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
+        return orderService.findById(id, version.version());
     }
 
     @GetMapping("/user")
-    @Operation(summary = "Get current user's orders")
-    public List<OrderDTO> getCurrentUserOrders(){
+    @Operation(summary = "Get current user's orders", description = "Supports If-None-Match / If-Modified-Since")
+    public List<OrderDTO> getCurrentUserOrders(WebRequest request){
         Long userId = currentUserService.getCurrentUserId();
+        OrderListVersion version = orderService.findUserOrdersVersion(userId);
+        if (request.checkNotModified(version.etag(), version.lastModifiedMillis())) {
+            return null;
+        }
         return orderService.findByUserId(userId);
     }
 
+    @GetMapping("/user/scroll")
+    @Operation(summary = "Get current user's orders, newest first, with cursor pagination")
+    public OrderPageDTO scrollCurrentUserOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size){
+        Long userId = currentUserService.getCurrentUserId();
+        return orderService.scrollByUserId(userId, after, size);
+    }
+
+    @GetMapping("/user/summary")
+    @Operation(summary = "Get current user's order summary", description = "Order count, total spent, count by status and last order time")
+    public UserOrderSummaryDTO getCurrentUserOrderSummary(){
+        return userOrderSummaryService.findByUserId(currentUserService.getCurrentUserId());
+    }
+
+    @GetMapping("/user/{userId}/summary")
+    @Operation(summary = "Get a user's order summary (admin)")
+    public UserOrderSummaryDTO getUserOrderSummary(@PathVariable Long userId){
+        return userOrderSummaryService.findByUserId(userId);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream status changes of an order (Server-Sent Events)")
+    public SseEmitter streamOrderEvents(@PathVariable Long id){
+        Long userId = currentUserService.getCurrentUserId();
+        return orderStatusStreamService.subscribeToOrder(id, () -> orderService.findCurrentStatus(id, userId));
+    }
+
+    @GetMapping(value = "/user/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream status changes of the current user's orders (Server-Sent Events)")
+    public SseEmitter streamCurrentUserEvents(){
+        Long userId = currentUserService.getCurrentUserId();
+        return orderStatusStreamService.subscribeToUser(userId);
+    }
+
+    @PostMapping("/status/bulk")
+    @Operation(summary = "Change the status of many orders", description = "One result per item, in request order")
+    public List<StatusTransitionResult> transitionStatuses(@RequestBody List<StatusTransitionRequest> transitions) {
+        return orderStatusBulkService.transition(transitions);
+    }
+
     @PostMapping("/{id}/cancel")
-    @Operation(summary = "Cancel order by ID")
-    public ResponseEntity<OrderDTO> cancelOrder(@PathVariable Long id) {
+    @Operation(summary = "Cancel order by ID", description = "With If-Match, cancels only if the order is still at that version")
+    public ResponseEntity<OrderDTO> cancelOrder(@PathVariable Long id,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Long userId = currentUserService.getCurrentUserId();
-        OrderDTO order = orderService.cancelOrder(id, userId);
+        Long expectedVersion = ifMatch == null ? null : OrderVersion.parseEtag(ifMatch);
+        OrderDTO order = orderService.cancelOrder(id, userId, expectedVersion);
         return ResponseEntity.ok(order);
     }
 }
@@ -14,7 +14,10 @@ public record CreateOrderDTO(
         List<CreateOrderItemDTO> items,
 
         @Schema(description = "Payment method", example = "CREDIT_CARD")
-        PaymentMethod paymentMethod
+        PaymentMethod paymentMethod,
+
+        @Schema(description = "Cart checked out, at most one order per cart", example = "10")
+        Long cartId
 ) {
     @Schema(description = "Order item data for creation")
     public record CreateOrderItemDTO(
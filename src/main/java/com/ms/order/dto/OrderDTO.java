@@ -36,7 +36,20 @@ public record OrderDTO(
         Integer totalQuantity,
 
         @Schema(description = "Total price of all items", example = "2999.95")
-        BigDecimal totalPrice
-) {
+        BigDecimal totalPrice,
 
+        @Schema(description = "Version of the order, incremented on every change", example = "2")
+        Long version
+) {
+    /**
+     * Whether some item was built from last-known product data, see {@link OrderItemDTO#stale()}.
+     */
+    public boolean hasStaleItems() {
+        for (OrderItemDTO item : items) {
+            if (item.stale()) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
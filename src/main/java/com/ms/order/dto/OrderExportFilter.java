@@ -0,0 +1,17 @@
+package com.ms.order.dto;
+
+import java.time.LocalDateTime;
+
+import com.ms.order.enums.OrderStatus;
+
+/**
+ * Optional filters of an order export. Null fields are not applied;
+ * the date range is [from, to) on the creation date.
+ */
+public record OrderExportFilter(
+        OrderStatus status,
+        Long userId,
+        LocalDateTime from,
+        LocalDateTime to
+) {
+}
@@ -17,5 +17,7 @@ public record OrderItemDTO(
     @Schema(description = "Unit price", example = "999.99")
     BigDecimal priceAmount,
     @Schema(description = "Total price", example = "1999.98")
-    BigDecimal totalPrice
+    BigDecimal totalPrice,
+    @Schema(description = "True when the product service was unavailable and name and prices are last known, or unknown when null", example = "false")
+    boolean stale
 ) {}
\ No newline at end of file
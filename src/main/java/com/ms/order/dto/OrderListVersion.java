@@ -0,0 +1,19 @@
+package com.ms.order.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validators of a user's order list for conditional requests. Orders are never deleted,
+ * so the count and the sum of versions only grow and together identify the list state.
+ */
+public record OrderListVersion(Long count, Long versionSum, LocalDateTime lastModified) {
+
+    public String etag() {
+        return "\"" + count + "-" + versionSum + "\"";
+    }
+
+    public long lastModifiedMillis() {
+        return lastModified == null ? -1 : lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
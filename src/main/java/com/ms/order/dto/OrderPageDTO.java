@@ -0,0 +1,16 @@
+package com.ms.order.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Page of orders with a cursor to the next page")
+public record OrderPageDTO(
+        @Schema(description = "Orders of the page, newest first")
+        List<OrderDTO> items,
+
+        @Schema(description = "Opaque cursor to pass as 'after' to fetch the next page, null on the last page",
+                example = "MjAyNC0wMS0wMVQxMDowMDoxNXw0Mg")
+        String nextCursor
+) {
+}
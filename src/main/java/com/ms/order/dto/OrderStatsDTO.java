@@ -0,0 +1,18 @@
+package com.ms.order.dto;
+
+import com.ms.order.enums.StatsGranularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order statistics over [from, to), one point per non-empty bucket, plus the totals of the whole range.
+ */
+public record OrderStatsDTO(
+        StatsGranularity granularity,
+        LocalDateTime from,
+        LocalDateTime to,
+        List<OrderStatsPointDTO> points,
+        OrderStatsPointDTO total
+) {
+}
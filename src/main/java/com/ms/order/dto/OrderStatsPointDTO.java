@@ -0,0 +1,25 @@
+package com.ms.order.dto;
+
+import com.ms.order.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Order statistics of one bucket. Cancellations are counted in the bucket of the order's creation, so
+ * cancelledCount is how many of the orders created in the period were cancelled so far, cancellationRate
+ * is their share of orderCount and netRevenue is revenue minus cancelledRevenue, never negative.
+ */
+public record OrderStatsPointDTO(
+        LocalDateTime bucketStart,
+        long orderCount,
+        BigDecimal revenue,
+        long cancelledCount,
+        BigDecimal cancelledRevenue,
+        BigDecimal netRevenue,
+        double cancellationRate,
+        Map<PaymentMethod, Long> ordersByPaymentMethod,
+        Map<PaymentMethod, BigDecimal> revenueByPaymentMethod
+) {
+}
@@ -0,0 +1,11 @@
+package com.ms.order.dto;
+
+import java.util.List;
+
+/**
+ * Status changes committed together, published and broadcast as one event.
+ */
+public record OrderStatusChangedBatch(
+        List<OrderStatusChangedEvent> events
+) {
+}
@@ -0,0 +1,17 @@
+package com.ms.order.dto;
+
+import java.time.LocalDateTime;
+
+import com.ms.order.enums.OrderStatus;
+
+/**
+ * Published (in-process, then broadcast to every replica after commit) whenever the status of an order changes.
+ */
+public record OrderStatusChangedEvent(
+        Long orderId,
+        Long userId,
+        OrderStatus previousStatus,
+        OrderStatus status,
+        LocalDateTime changedAt
+) {
+}
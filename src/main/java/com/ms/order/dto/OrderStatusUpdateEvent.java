@@ -0,0 +1,11 @@
+package com.ms.order.dto;
+
+import java.util.List;
+
+/**
+ * Event received from fulfillment systems with status changes for many orders at once.
+ */
+public record OrderStatusUpdateEvent(
+        List<StatusTransitionRequest> transitions
+) {
+}
@@ -0,0 +1,35 @@
+package com.ms.order.dto;
+
+import com.ms.order.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Validators of a single order for conditional requests.
+ */
+public record OrderVersion(Long version, LocalDateTime lastModified) {
+
+    public String etag() {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version carried by an ETag of this form, as sent back in If-Match.
+     */
+    public static Long parseEtag(String etag) {
+        String value = etag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("If-Match", etag, "not an order ETag");
+        }
+    }
+
+    public long lastModifiedMillis() {
+        return lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,13 @@
+package com.ms.order.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Event received from ProductService when a product's name or price changes.
+ * Used to invalidate the local product catalog cache.
+ */
+public record ProductChangedEvent(
+        Long productId,
+        String name,
+        BigDecimal price
+) {}
@@ -0,0 +1,14 @@
+package com.ms.order.dto;
+
+import com.ms.order.enums.OrderStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Requested status change of one order")
+public record StatusTransitionRequest(
+        @Schema(description = "Order ID", example = "1")
+        Long orderId,
+
+        @Schema(description = "Target status", example = "SHIPPED")
+        OrderStatus status
+) {
+}
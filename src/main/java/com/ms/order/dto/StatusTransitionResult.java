@@ -0,0 +1,28 @@
+package com.ms.order.dto;
+
+import com.ms.order.enums.OrderStatus;
+
+/**
+ * Outcome of a status transition. When rejected, fromStatus and version are the current
+ * values of the order (null if it does not exist) and toStatus is the requested status.
+ */
+public record StatusTransitionResult(
+        Outcome outcome,
+        Long orderId,
+        Long userId,
+        OrderStatus fromStatus,
+        OrderStatus toStatus,
+        Long version
+) {
+    public enum Outcome {
+        APPLIED,
+        NOT_FOUND,
+        NOT_OWNER,
+        INVALID_TRANSITION,
+        STALE_VERSION
+    }
+
+    public boolean applied() {
+        return outcome == Outcome.APPLIED;
+    }
+}
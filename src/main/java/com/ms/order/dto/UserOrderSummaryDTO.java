@@ -0,0 +1,19 @@
+package com.ms.order.dto;
+
+import com.ms.order.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Aggregates of a user's orders. totalSpent excludes cancelled orders.
+ */
+public record UserOrderSummaryDTO(
+        Long userId,
+        long orderCount,
+        BigDecimal totalSpent,
+        Map<OrderStatus, Long> ordersByStatus,
+        LocalDateTime lastOrderAt
+) {
+}
@@ -0,0 +1,35 @@
+package com.ms.order.enums;
+
+import com.ms.order.exception.ValidationException;
+import org.springframework.http.MediaType;
+
+public enum ExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat from(String format) {
+        for (ExportFormat value : values()) {
+            if (value.extension.equalsIgnoreCase(format)) {
+                return value;
+            }
+        }
+        throw new ValidationException("format", format, "expected ndjson or csv");
+    }
+}
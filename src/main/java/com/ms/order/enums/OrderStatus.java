@@ -1,5 +1,11 @@
 package com.ms.order.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     PENDING(),
     PROCESSING(),
@@ -7,6 +13,37 @@ public enum OrderStatus {
     DELIVERED(),
     CANCELLED();
 
+    /**
+     * Allowed status transitions. DELIVERED and CANCELLED are final.
+     */
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    private static final Map<OrderStatus, Set<OrderStatus>> SOURCES = new EnumMap<>(OrderStatus.class);
+
+    static {
+        allow(PENDING, PROCESSING, CANCELLED);
+        allow(PROCESSING, SHIPPED, CANCELLED);
+        allow(SHIPPED, DELIVERED);
+    }
+
     OrderStatus() {
     }
-}
\ No newline at end of file
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return TRANSITIONS.getOrDefault(this, Set.of()).contains(target);
+    }
+
+    /**
+     * Statuses an order may be in to move to the given one.
+     */
+    public static Set<OrderStatus> sourcesOf(OrderStatus target) {
+        return SOURCES.getOrDefault(target, Set.of());
+    }
+
+    private static void allow(OrderStatus from, OrderStatus... targets) {
+        TRANSITIONS.put(from, Collections.unmodifiableSet(EnumSet.of(targets[0], targets)));
+        for (OrderStatus target : targets) {
+            SOURCES.computeIfAbsent(target, t -> EnumSet.noneOf(OrderStatus.class)).add(from);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ms.order.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Width of an order statistics bucket. Names match the PostgreSQL date_trunc fields.
+ */
+public enum StatsGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    StatsGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Field name for date_trunc.
+     */
+    public String field() {
+        return name().toLowerCase();
+    }
+}
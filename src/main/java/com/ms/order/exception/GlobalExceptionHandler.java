@@ -51,7 +51,7 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, status);
     }
 
-    @ExceptionHandler({InsufficientStockException.class, DuplicateResourceException.class})
+    @ExceptionHandler({InsufficientStockException.class, DuplicateResourceException.class, StaleVersionException.class})
     public ResponseEntity<Object> handleConflictException(
             RuntimeException ex, WebRequest request) {
 
@@ -65,6 +65,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Object> handlePreconditionFailedException(
+            PreconditionFailedException ex, WebRequest request) {
+
+        Map<String, Object> body = createErrorResponse(
+                HttpStatus.PRECONDITION_FAILED.value(),
+                "Precondition Failed",
+                ex.getMessage(),
+                request
+        );
+
+        return new ResponseEntity<>(body, HttpStatus.PRECONDITION_FAILED);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleValidationExceptions(
             MethodArgumentNotValidException ex, WebRequest request) {
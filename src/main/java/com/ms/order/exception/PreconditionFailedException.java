@@ -0,0 +1,16 @@
+package com.ms.order.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a conditional request (If-Match) names a version the resource is no longer at.
+ * Returns HTTP 412 Precondition Failed.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String resource, Object id, Long expectedVersion, Long currentVersion) {
+        super(String.format("%s %s is not at version %s, current version: %s", resource, id, expectedVersion, currentVersion));
+    }
+}
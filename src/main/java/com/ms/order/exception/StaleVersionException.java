@@ -0,0 +1,16 @@
+package com.ms.order.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a resource was changed since the version the client based its request on.
+ * Returns HTTP 409 Conflict.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StaleVersionException extends RuntimeException {
+
+    public StaleVersionException(String resource, Object id, Long currentVersion) {
+        super(String.format("%s %s was modified concurrently, current version: %s", resource, id, currentVersion));
+    }
+}
@@ -0,0 +1,129 @@
+package com.ms.order.job;
+
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.model.OrderItem;
+import com.ms.order.repository.BackfilledOrderRow;
+import com.ms.order.repository.OrderRepository;
+import com.ms.order.service.OrderDTOCache;
+import com.ms.order.service.ProductLookupService;
+import com.ms.order.service.UserOrderSummaryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fills the name/price snapshot of items and the totals of orders created before snapshots existed.
+ *
+ * Runs once after startup when app.backfill.order-snapshot.enabled=true, one transaction per batch.
+ * Legacy rows are priced with the current catalog price, which is what reads were already showing.
+ * Orders with products no longer known to ProductService are left as they are and skipped.
+ *
+ * Orders are never loaded as entities: the totals are written with a conditional UPDATE, so the job does not
+ * race the status transitions on the order version. A batch that fails is logged and skipped, and its
+ * orders are picked up by a later run. After each batch the order cache drops the affected orders and the
+ * summaries of their users are rebuilt, since their total spent changes.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.backfill.order-snapshot.enabled", havingValue = "true")
+public class OrderSnapshotBackfillJob {
+    private final OrderRepository repository;
+
+    private final ProductLookupService productLookupService;
+
+    private final UserOrderSummaryService userOrderSummaryService;
+
+    private final OrderDTOCache orderDTOCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    OrderSnapshotBackfillJob(OrderRepository repository,
+                             ProductLookupService productLookupService,
+                             UserOrderSummaryService userOrderSummaryService,
+                             OrderDTOCache orderDTOCache,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${app.backfill.order-snapshot.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.productLookupService = productLookupService;
+        this.userOrderSummaryService = userOrderSummaryService;
+        this.orderDTOCache = orderDTOCache;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        log.info("Starting order snapshot backfill. Batch size: {}", batchSize);
+
+        long lastId = 0;
+        int backfilled = 0;
+        int skipped = 0;
+        int failedBatches = 0;
+        List<Long> ids;
+        while (!(ids = repository.findIdsWithoutSnapshot(lastId, Limit.of(batchSize))).isEmpty()) {
+            final List<Long> batch = ids;
+            lastId = batch.getLast();
+
+            int count;
+            try {
+                count = transactionTemplate.execute(status -> backfill(batch));
+            } catch (RuntimeException e) {
+                log.warn("Order snapshot backfill of orders {} to {} failed, skipping them", batch.getFirst(), batch.getLast(), e);
+                skipped += batch.size();
+                failedBatches++;
+                continue;
+            }
+
+            // Cached copies were assembled without the snapshot
+            orderDTOCache.invalidateAll(batch);
+            backfilled += count;
+            skipped += batch.size() - count;
+        }
+
+        log.info("Order snapshot backfill finished. Backfilled: {}, Skipped: {}, Failed batches: {}",
+                backfilled, skipped, failedBatches);
+    }
+
+    private int backfill(List<Long> ids) {
+        List<OrderItem> items = repository.findItemsWithoutSnapshotByOrderIdIn(ids);
+
+        Set<Long> productIds = items.stream()
+                .map(OrderItem::getProductId)
+                .collect(Collectors.toSet());
+        Map<Long, InternalProductDTO> productMap = productLookupService.findProductsByIds(productIds);
+
+        // Items carry no version, only their own columns are written
+        for (OrderItem item : items) {
+            InternalProductDTO product = productMap.get(item.getProductId());
+            if (product != null) {
+                item.setProductName(product.name());
+                item.setUnitPrice(product.price());
+            }
+        }
+        repository.flush();
+
+        List<BackfilledOrderRow> updated = repository.fillMissingTotals(ids);
+        if (updated.size() < ids.size()) {
+            Set<Long> updatedIds = updated.stream().map(BackfilledOrderRow::getId).collect(Collectors.toSet());
+            log.warn("Orders {} have items with unknown products, snapshot not backfilled",
+                    ids.stream().filter(id -> !updatedIds.contains(id)).toList());
+        }
+
+        userOrderSummaryService.rebuild(updated.stream().map(BackfilledOrderRow::getUserId).collect(Collectors.toSet()));
+        return updated.size();
+    }
+}
@@ -0,0 +1,22 @@
+package com.ms.order.job;
+
+import com.ms.order.service.OrderStatsService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically compacts the order stats buckets, see {@link OrderStatsService#compact}.
+ */
+@Component
+public class OrderStatsCompactionJob {
+    private final OrderStatsService orderStatsService;
+
+    OrderStatsCompactionJob(OrderStatsService orderStatsService) {
+        this.orderStatsService = orderStatsService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.compaction.interval-ms:300000}")
+    public void run() {
+        orderStatsService.compact();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ms.order.job;
+
+import com.ms.order.repository.OrderRepository;
+import com.ms.order.service.UserOrderSummaryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Recomputes every user's order summary from the orders, to repair the projection.
+ *
+ * Runs once after startup when app.rebuild.user-order-summary.enabled=true, one transaction per batch
+ * of users. Safe to run while orders keep changing, see {@link UserOrderSummaryService#rebuild}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.rebuild.user-order-summary.enabled", havingValue = "true")
+public class UserOrderSummaryRebuildJob {
+    private final OrderRepository repository;
+
+    private final UserOrderSummaryService userOrderSummaryService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    UserOrderSummaryRebuildJob(OrderRepository repository,
+                               UserOrderSummaryService userOrderSummaryService,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${app.rebuild.user-order-summary.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.userOrderSummaryService = userOrderSummaryService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        log.info("Starting user order summary rebuild. Batch size: {}", batchSize);
+
+        long lastUserId = Long.MIN_VALUE;
+        int rebuilt = 0;
+        List<Long> userIds;
+        while (!(userIds = repository.findUserIdsAfter(lastUserId, Limit.of(batchSize))).isEmpty()) {
+            final List<Long> batch = userIds;
+            transactionTemplate.executeWithoutResult(status -> userOrderSummaryService.rebuild(batch));
+            rebuilt += batch.size();
+            lastUserId = batch.getLast();
+        }
+
+        log.info("User order summary rebuild finished. Users: {}", rebuilt);
+    }
+}
@@ -5,25 +5,40 @@ import com.ms.order.enums.PaymentMethod;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @AllArgsConstructor
-@Table(name = "Orders")
+@Table(name = "Orders", uniqueConstraints = @UniqueConstraint(name = "uk_orders_cart_id", columnNames = "cart_id"), indexes = {
+        @Index(name = "idx_orders_created_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_orders_user_created_id", columnList = "user_id, created_at DESC, id DESC")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @Builder(toBuilder = true)
 public class Order {
+    /**
+     * Pooled sequence so inserts can be batched. The database sequence increment is authoritative
+     * (see the V1 migration), the allocation size here only has to match the default.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
+    /**
+     * Cart the order was checked out from. Unique, so a redelivered checkout can never create a second order.
+     */
+    @Column(name = "cart_id")
+    private Long cartId;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private OrderStatus status;
@@ -36,9 +51,44 @@ public class Order {
     @Column(name = "payment_method", nullable = false)
     private PaymentMethod paymentMethod;
 
+    /**
+     * Denormalized from the item snapshots. Null for orders not yet backfilled.
+     */
+    @Column(name = "total_quantity")
+    private Integer totalQuantity;
+
+    @Column(name = "total_price", precision = 19, scale = 2)
+    private BigDecimal totalPrice;
+
+    /**
+     * Optimistic lock, also used as the ETag of the order. Incremented by every update.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    /**
+     * Recomputes the denormalized totals from the item snapshots.
+     * Totals stay empty while any item has no snapshot.
+     */
+    public void updateTotals() {
+        if (!items.stream().allMatch(OrderItem::hasSnapshot)) {
+            return;
+        }
+
+        int quantity = 0;
+        BigDecimal price = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            quantity += item.getQuantity();
+            price = price.add(item.getTotalPrice());
+        }
+        this.totalQuantity = quantity;
+        this.totalPrice = price;
+    }
 }
@@ -6,15 +6,18 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
+
 @Entity
 @AllArgsConstructor
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order_id", columnList = "order_id"))
 @Getter
 @Setter
 @NoArgsConstructor
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -27,9 +30,37 @@ public class OrderItem {
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
 
+    /**
+     * Product name captured at checkout. Null only for items created before snapshots existed.
+     */
+    @Column(name = "product_name")
+    private String productName;
+
+    /**
+     * Unit price captured at checkout, so later price changes do not alter the order.
+     * Null only for items created before snapshots existed.
+     */
+    @Column(name = "unit_price", precision = 19, scale = 2)
+    private BigDecimal unitPrice;
+
     public OrderItem(Long productId, Integer quantity) {
         this.productId = productId;
         this.quantity = quantity;
     }
 
+    public OrderItem(Long productId, Integer quantity, String productName, BigDecimal unitPrice) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.productName = productName;
+        this.unitPrice = unitPrice;
+    }
+
+    public boolean hasSnapshot() {
+        return unitPrice != null;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
 }
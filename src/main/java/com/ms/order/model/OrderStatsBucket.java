@@ -0,0 +1,37 @@
+package com.ms.order.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Orders created and cancelled in one time bucket with one payment method.
+ *
+ * Orders are counted in the bucket of their creation and cancellations in the bucket of the
+ * cancellation. New events go to MINUTE buckets, which are later compacted into HOUR and then DAY
+ * buckets, so every event is counted in exactly one row at any time.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "order_stats_bucket", indexes = @Index(name = "idx_order_stats_bucket_start", columnList = "bucket_start"))
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class OrderStatsBucket {
+    @EmbeddedId
+    private OrderStatsBucketId id;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private long cancelledCount;
+
+    @Column(name = "cancelled_revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal cancelledRevenue;
+}
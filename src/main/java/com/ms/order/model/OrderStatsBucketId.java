@@ -0,0 +1,27 @@
+package com.ms.order.model;
+
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.enums.StatsGranularity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Embeddable
+@AllArgsConstructor
+@Getter
+@NoArgsConstructor
+@EqualsAndHashCode
+public class OrderStatsBucketId implements Serializable {
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 8)
+    private StatsGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false)
+    private PaymentMethod paymentMethod;
+}
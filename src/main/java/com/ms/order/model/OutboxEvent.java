@@ -0,0 +1,59 @@
+package com.ms.order.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event written in the same transaction as the order change that produced it,
+ * and published to RabbitMQ afterwards by the outbox relay.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    /**
+     * Type id header expected by the consumers' JSON message converter.
+     */
+    @Column(name = "event_type")
+    private String eventType;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Set while a relay instance publishes the event; other instances skip it until then.
+     * Also used to delay the next attempt after a failed one.
+     */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    /**
+     * Set when the event failed every attempt. Parked events are no longer relayed and are kept for inspection.
+     */
+    @Column(name = "parked_at")
+    private LocalDateTime parkedAt;
+}
@@ -0,0 +1,55 @@
+package com.ms.order.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Per-user aggregates of orders, kept up to date in the transactions that create orders or change
+ * their status, so they can be read without touching the orders.
+ * Orders without totals (created before snapshots existed) count as zero in total spent.
+ */
+@Entity
+@AllArgsConstructor
+@Table(name = "user_order_summary")
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class UserOrderSummary {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    /**
+     * Sum of the totals of orders that are not cancelled.
+     */
+    @Column(name = "total_spent", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalSpent;
+
+    @Column(name = "pending_count", nullable = false)
+    private long pendingCount;
+
+    @Column(name = "processing_count", nullable = false)
+    private long processingCount;
+
+    @Column(name = "shipped_count", nullable = false)
+    private long shippedCount;
+
+    @Column(name = "delivered_count", nullable = false)
+    private long deliveredCount;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private long cancelledCount;
+
+    @Column(name = "last_order_at")
+    private LocalDateTime lastOrderAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
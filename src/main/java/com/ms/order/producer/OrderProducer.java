@@ -1,16 +1,100 @@
 package com.ms.order.producer;
 
+import com.ms.order.dto.OrderStatusChangedBatch;
+import com.ms.order.dto.OrderStatusChangedEvent;
+import com.ms.order.model.OutboxEvent;
+import com.ms.order.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order events are not sent to RabbitMQ directly: they are written to the outbox in the
+ * caller's transaction and published by {@link OutboxRelay} once that transaction commits.
+ *
+ * Publishing itself is asynchronous and pipelined: {@link #publishAsync} returns a future per message
+ * that completes when the broker confirms it. At most app.rabbitmq.publisher.max-in-flight messages
+ * are unconfirmed at once, nacks are retried with exponential backoff and returned (unroutable)
+ * messages fail their future.
+ */
 @Component
+@Slf4j
 public class OrderProducer {
     private final RabbitTemplate rabbitTemplate;
 
-    OrderProducer(RabbitTemplate rabbitTemplate) {
+    private final OutboxRepository outboxRepository;
+
+    private final Jackson2JsonMessageConverter messageConverter;
+
+    private final Semaphore inFlight;
+
+    private final int maxAttempts;
+
+    private final long retryBackoffMs;
+
+    private final long confirmTimeoutMs;
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("publisher-retry").daemon().factory());
+
+    private final Timer confirmLatency;
+
+    private final Counter nacks;
+
+    private final Counter returns;
+
+    OrderProducer(RabbitTemplate rabbitTemplate,
+                  OutboxRepository outboxRepository,
+                  Jackson2JsonMessageConverter messageConverter,
+                  MeterRegistry meterRegistry,
+                  @Value("${app.rabbitmq.publisher.max-in-flight:1000}") int maxInFlight,
+                  @Value("${app.rabbitmq.publisher.max-attempts:3}") int maxAttempts,
+                  @Value("${app.rabbitmq.publisher.retry-backoff-ms:100}") long retryBackoffMs,
+                  @Value("${app.rabbitmq.publisher.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
         this.rabbitTemplate = rabbitTemplate;
+        this.outboxRepository = outboxRepository;
+        this.messageConverter = messageConverter;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        Gauge.builder("order.publisher.in-flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Messages published and not yet confirmed")
+                .register(meterRegistry);
+        this.confirmLatency = Timer.builder("order.publisher.confirm.latency")
+                .description("Time from publish to broker confirm")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.nacks = meterRegistry.counter("order.publisher.nacks");
+        this.returns = meterRegistry.counter("order.publisher.returns");
     }
 
     @Value(value = "${broker.queue.order.cancelled.name}")
@@ -19,12 +103,133 @@ public class OrderProducer {
     @Value(value = "${broker.queue.product.update-stock.name}")
     private String updateStockRoutingKey;
 
+    @Value(value = "${broker.queue.order.checkout-dlq.name}")
+    private String checkoutDeadLetterRoutingKey;
+
+    @Value(value = "${broker.exchange.order.status-changed.name}")
+    private String orderStatusChangedExchange;
+
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publishOrderCancelledEvent(@Valid Object orderCancelledEvent) {
-        rabbitTemplate.convertAndSend(cancelledOrderRoutingKey, orderCancelledEvent);
+        enqueue(cancelledOrderRoutingKey, orderCancelledEvent);
     }
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publishUpdateStockEvent(@Valid Object updateStockEvent) {
-        rabbitTemplate.convertAndSend(updateStockRoutingKey, updateStockEvent);
+        enqueue(updateStockRoutingKey, updateStockEvent);
+    }
+
+    /**
+     * Moves a checkout message that cannot be processed to the dead-letter queue, keeping its original body.
+     * The source message must only be acked once the returned future completes, see {@link #publishAsync}.
+     */
+    public CompletableFuture<Void> publishCheckoutDeadLetter(Message message, Exception cause) {
+        message.getMessageProperties().setHeader("x-exception-message", String.valueOf(cause.getMessage()));
+        return publishAsync(checkoutDeadLetterRoutingKey, message);
+    }
+
+    /**
+     * Tells every replica that an order changed once the change is committed. Best effort:
+     * a lost broadcast only leaves other replicas' caches stale until their TTL.
+     * Always sent as a batch, so bulk transitions cost one message.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void broadcastOrderStatusChanged(OrderStatusChangedEvent event) {
+        broadcastOrderStatusChanged(new OrderStatusChangedBatch(List.of(event)));
     }
-}
 
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void broadcastOrderStatusChanged(OrderStatusChangedBatch batch) {
+        try {
+            rabbitTemplate.convertAndSend(orderStatusChangedExchange, "", batch);
+        } catch (AmqpException e) {
+            log.warn("Could not broadcast status change of {} orders: {}", batch.events().size(), e.getMessage());
+        }
+    }
+
+    public CompletableFuture<Void> publishAsync(String routingKey, Object event) {
+        return publishAsync(routingKey, messageConverter.toMessage(event, new MessageProperties()));
+    }
+
+    /**
+     * Publishes without waiting for the broker. The future completes once the message is confirmed,
+     * or exceptionally if it is returned, nacked on every attempt or not confirmed in time.
+     * Blocks only while the in-flight window is full.
+     */
+    public CompletableFuture<Void> publishAsync(String routingKey, Message message) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            if (!inFlight.tryAcquire(confirmTimeoutMs, TimeUnit.MILLISECONDS)) {
+                result.completeExceptionally(new AmqpException("Publisher in-flight window is full"));
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        // The permit is held across retries and released once the outcome is final
+        result.whenComplete((ignored, ex) -> inFlight.release());
+        send(routingKey, message, 1, result);
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdown();
+    }
+
+    private void send(String routingKey, Message message, int attempt, CompletableFuture<Void> result) {
+        CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+        long start = System.nanoTime();
+        try {
+            rabbitTemplate.send(rabbitTemplate.getExchange(), routingKey, message, correlation);
+        } catch (Exception e) {
+            retryOrFail(routingKey, message, attempt, result, e);
+            return;
+        }
+
+        correlation.getFuture()
+                .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((confirm, ex) -> {
+                    if (ex != null) {
+                        retryOrFail(routingKey, message, attempt, result, ex);
+                    } else if (correlation.getReturned() != null) {
+                        returns.increment();
+                        result.completeExceptionally(new AmqpException("Message returned as unroutable: "
+                                + correlation.getReturned().getReplyText() + ", routing key: " + routingKey));
+                    } else if (!confirm.isAck()) {
+                        nacks.increment();
+                        retryOrFail(routingKey, message, attempt, result, new AmqpException("Message nacked: " + confirm.getReason()));
+                    } else {
+                        confirmLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        result.complete(null);
+                    }
+                });
+    }
+
+    private void retryOrFail(String routingKey, Message message, int attempt, CompletableFuture<Void> result, Throwable cause) {
+        if (attempt >= maxAttempts) {
+            result.completeExceptionally(cause);
+            return;
+        }
+
+        long backoff = retryBackoffMs << (attempt - 1);
+        log.warn("Publish to {} failed (attempt {}/{}), retrying in {} ms: {}",
+                routingKey, attempt, maxAttempts, backoff, cause.getMessage());
+        retryScheduler.schedule(() -> send(routingKey, message, attempt + 1, result), backoff, TimeUnit.MILLISECONDS);
+    }
+
+    private void enqueue(String routingKey, Object event) {
+        // Serialized exactly as convertAndSend would, so consumers see the same message
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+
+        outboxRepository.save(OutboxEvent.builder()
+                .routingKey(routingKey)
+                .eventType(message.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))
+                .payload(new String(message.getBody(), StandardCharsets.UTF_8))
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,179 @@
+package com.ms.order.producer;
+
+import com.ms.order.model.OutboxEvent;
+import com.ms.order.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events to RabbitMQ.
+ *
+ * Each batch is claimed for app.outbox.relay.lease in a short transaction, published through the pipelined
+ * {@link OrderProducer#publishAsync}, and its outcome recorded in a second transaction once the confirms are
+ * in. No row lock is held while waiting for the broker, and several instances can relay in parallel without
+ * sending the same row twice. Events that are returned or not confirmed are retried with exponential backoff,
+ * so they do not hold back the rest of the outbox, and are parked after app.outbox.relay.max-attempts.
+ * Ordering is only guaranteed within one instance and only for events that succeed on their first attempt.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+
+    private final OrderProducer orderProducer;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final long awaitTimeoutMs;
+
+    private final Duration lease;
+
+    private final int maxAttempts;
+
+    private final Duration retryBackoff;
+
+    private final Duration maxRetryBackoff;
+
+    private final Duration retention;
+
+    OutboxRelay(OutboxRepository outboxRepository,
+                OrderProducer orderProducer,
+                TransactionTemplate transactionTemplate,
+                @Value("${app.outbox.relay.batch-size:100}") int batchSize,
+                @Value("${app.outbox.relay.await-timeout-ms:30000}") long awaitTimeoutMs,
+                @Value("${app.outbox.relay.lease:PT1M}") Duration lease,
+                @Value("${app.outbox.relay.max-attempts:10}") int maxAttempts,
+                @Value("${app.outbox.relay.retry-backoff:PT1S}") Duration retryBackoff,
+                @Value("${app.outbox.relay.max-retry-backoff:PT5M}") Duration maxRetryBackoff,
+                @Value("${app.outbox.retention:P7D}") Duration retention) {
+        if (lease.toMillis() <= awaitTimeoutMs) {
+            throw new IllegalArgumentException("app.outbox.relay.lease must be longer than app.outbox.relay.await-timeout-ms");
+        }
+        this.outboxRepository = outboxRepository;
+        this.orderProducer = orderProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.awaitTimeoutMs = awaitTimeoutMs;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:200}")
+    public void relay() {
+        int sent;
+        do {
+            sent = relayBatch();
+        } while (sent == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup.interval-ms:3600000}")
+    public void deleteSentEvents() {
+        int deleted = transactionTemplate.execute(status ->
+                outboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.info("Deleted {} sent outbox events", deleted);
+        }
+    }
+
+    int relayBatch() {
+        LocalDateTime claimedAt = LocalDateTime.now();
+        List<OutboxEvent> batch = new ArrayList<>(transactionTemplate.execute(status ->
+                outboxRepository.claimNextBatch(batchSize, claimedAt, claimedAt.plus(lease))));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(Comparator.comparing(OutboxEvent::getId));
+
+        // The whole batch is in flight before waiting on any confirm
+        List<CompletableFuture<Void>> confirms = batch.stream()
+                .map(event -> orderProducer.publishAsync(event.getRoutingKey(), toMessage(event)))
+                .toList();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMs);
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<Long> parked = new ArrayList<>();
+        Map<Integer, List<Long>> retriesByAttempts = new TreeMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            if (isConfirmed(event, confirms.get(i), deadline)) {
+                sent.add(event.getId());
+            } else if (event.getAttempts() >= maxAttempts) {
+                parked.add(event.getId());
+            } else {
+                retriesByAttempts.computeIfAbsent(event.getAttempts(), attempts -> new ArrayList<>()).add(event.getId());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxRepository.markSent(sent, now);
+            }
+            retriesByAttempts.forEach((attempts, ids) -> outboxRepository.retryAt(ids, now.plus(backoff(attempts))));
+            if (!parked.isEmpty()) {
+                outboxRepository.park(parked, now);
+            }
+        });
+
+        if (!parked.isEmpty()) {
+            log.error("Outbox events {} parked after {} failed attempts", parked, maxAttempts);
+        }
+        if (sent.size() < batch.size()) {
+            log.warn("Outbox batch partially published. Sent: {}, Retried later: {}, Parked: {}",
+                    sent.size(), batch.size() - sent.size() - parked.size(), parked.size());
+        }
+        return sent.size();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxRetryBackoff) > 0 ? maxRetryBackoff : backoff;
+    }
+
+    private boolean isConfirmed(OutboxEvent event, CompletableFuture<Void> confirm, long deadline) {
+        try {
+            confirm.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Outbox event {} not confirmed (attempt {}): {}", event.getId(), event.getAttempts(), e.getMessage());
+            return false;
+        }
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        properties.setMessageId(event.getId().toString());
+        if (event.getEventType() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, event.getEventType());
+        }
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -0,0 +1,10 @@
+package com.ms.order.repository;
+
+/**
+ * Row returned by {@link OrderRepository#fillMissingTotals}: an order whose totals were filled.
+ */
+public interface BackfilledOrderRow {
+    Long getId();
+
+    Long getUserId();
+}
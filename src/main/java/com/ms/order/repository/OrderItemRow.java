@@ -0,0 +1,20 @@
+package com.ms.order.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Item columns of an order, read without managing {@link com.ms.order.model.OrderItem} entities.
+ */
+public interface OrderItemRow {
+    Long getId();
+
+    Long getOrderId();
+
+    Long getProductId();
+
+    Integer getQuantity();
+
+    String getProductName();
+
+    BigDecimal getUnitPrice();
+}
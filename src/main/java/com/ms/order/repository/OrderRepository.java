@@ -1,11 +1,213 @@
 package com.ms.order.repository;
 
+import com.ms.order.dto.OrderListVersion;
+import com.ms.order.dto.OrderVersion;
+import com.ms.order.enums.OrderStatus;
 import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    @EntityGraph(attributePaths = "items")
     List<Order> findByUserId(Long userId);
+
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    /**
+     * Moves an order to a new status in one statement, only if it is in one of the given statuses
+     * and, when given, at the expected version and owned by the given user. Returns the updated order
+     * header, or nothing if the transition was not applied.
+     *
+     * The row is locked in the CTE, so a concurrent transition is waited for and the conditions are
+     * checked again against its result instead of being overwritten.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            WITH target AS (
+                SELECT id, status AS previous_status
+                FROM orders
+                WHERE id = :id
+                  AND status IN (:sources)
+                  AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = :expectedVersion)
+                  AND (CAST(:ownerId AS BIGINT) IS NULL OR user_id = :ownerId)
+                FOR UPDATE
+            )
+            UPDATE orders o
+            SET status = :status, updated_at = :now, version = o.version + 1
+            FROM target t
+            WHERE o.id = t.id
+            RETURNING o.id AS "id", o.user_id AS "userId", t.previous_status AS "previousStatus", o.version AS "version",
+                      o.payment_method AS "paymentMethod", o.total_quantity AS "totalQuantity",
+                      o.total_price AS "totalPrice", o.created_at AS "createdAt", o.updated_at AS "updatedAt"
+            """)
+    Optional<TransitionedOrderRow> transitionStatus(@Param("id") Long id,
+                                                   @Param("sources") Collection<String> sources,
+                                                   @Param("status") String status,
+                                                   @Param("expectedVersion") Long expectedVersion,
+                                                   @Param("ownerId") Long ownerId,
+                                                   @Param("now") LocalDateTime now);
+
+    /**
+     * Set-based form of {@link #transitionStatus} for many orders moving to the same status.
+     * Rows are locked in ID order so concurrent bulk updates cannot deadlock each other.
+     * Returns one row per order actually transitioned.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            WITH target AS (
+                SELECT id, status AS previous_status
+                FROM orders
+                WHERE id IN (:ids)
+                  AND status IN (:sources)
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE orders o
+            SET status = :status, updated_at = :now, version = o.version + 1
+            FROM target t
+            WHERE o.id = t.id
+            RETURNING o.id AS "id", o.user_id AS "userId", t.previous_status AS "previousStatus", o.version AS "version",
+                      o.payment_method AS "paymentMethod", o.total_price AS "totalPrice", o.created_at AS "createdAt"
+            """)
+    List<StatusTransitionRow> transitionStatuses(@Param("ids") Collection<Long> ids,
+                                                 @Param("sources") Collection<String> sources,
+                                                 @Param("status") String status,
+                                                 @Param("now") LocalDateTime now);
+
+    @Query("select o.id as id, o.status as status, o.userId as userId, o.version as version from Order o where o.id = :id")
+    Optional<OrderStatusView> findStatusById(@Param("id") Long id);
+
+    @Query("select o.id as id, o.status as status, o.userId as userId, o.version as version from Order o where o.id in :ids")
+    List<OrderStatusView> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select i.id as id, i.order.id as orderId, i.productId as productId, i.quantity as quantity, "
+            + "i.productName as productName, i.unitPrice as unitPrice from OrderItem i where i.order.id = :orderId order by i.id")
+    List<OrderItemRow> findItemRowsByOrderId(@Param("orderId") Long orderId);
+
+    @Query("select i.id as id, i.order.id as orderId, i.productId as productId, i.quantity as quantity, "
+            + "i.productName as productName, i.unitPrice as unitPrice from OrderItem i where i.order.id in :orderIds "
+            + "order by i.order.id, i.id")
+    List<OrderItemRow> findItemRowsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query("select o.cartId from Order o where o.cartId in :cartIds")
+    Set<Long> findCartIdsIn(@Param("cartIds") Collection<Long> cartIds);
+
+    @Query("select new com.ms.order.dto.OrderVersion(o.version, coalesce(o.updatedAt, o.createdAt)) "
+            + "from Order o where o.id = :id")
+    Optional<OrderVersion> findVersionById(@Param("id") Long id);
+
+    /**
+     * Aggregate version of a user's orders: changes when an order is added or any order is updated.
+     */
+    @Query("select new com.ms.order.dto.OrderListVersion(count(o), coalesce(sum(o.version), 0), "
+            + "max(coalesce(o.updatedAt, o.createdAt))) from Order o where o.userId = :userId")
+    OrderListVersion findListVersionByUserId(@Param("userId") Long userId);
+
+    /**
+     * First phase of a paged listing: only the IDs of the requested page.
+     * Paginating a collection fetch join would force Hibernate to page in memory,
+     * so the items are loaded afterwards with {@link #findAllWithItemsByIdIn}.
+     */
+    @Query("select o.id from Order o")
+    List<Long> findPageIds(Pageable pageable);
+
+    /**
+     * Second phase of a paged listing: every order of the page with its items in a single query.
+     * The result order is unspecified, callers must restore the page order.
+     */
+    @Query("select distinct o from Order o left join fetch o.items where o.id in :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset listing, newest first. Backed by the (created_at desc, id desc) indexes,
+     * so a page costs the same no matter how deep it is.
+     */
+    @Query("select o.id from Order o order by o.createdAt desc, o.id desc")
+    List<Long> findKeysetIds(Limit limit);
+
+    @Query("select o.id from Order o where (o.createdAt, o.id) < (:createdAt, :id) order by o.createdAt desc, o.id desc")
+    List<Long> findKeysetIdsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Query("select o.id from Order o where o.userId = :userId order by o.createdAt desc, o.id desc")
+    List<Long> findKeysetIdsByUserId(@Param("userId") Long userId, Limit limit);
+
+    @Query("select o.id from Order o where o.userId = :userId and (o.createdAt, o.id) < (:createdAt, :id) "
+            + "order by o.createdAt desc, o.id desc")
+    List<Long> findKeysetIdsByUserIdAfter(@Param("userId") Long userId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Limit limit);
+
+    /**
+     * Next IDs of the orders to export, in ID order after the given one.
+     */
+    @Query("""
+            select o.id from Order o
+            where (:status is null or o.status = :status)
+              and (:userId is null or o.userId = :userId)
+              and (:from is null or o.createdAt >= :from)
+              and (:to is null or o.createdAt < :to)
+              and o.id > :afterId
+            order by o.id""")
+    List<Long> findIdsForExport(@Param("status") OrderStatus status,
+                                @Param("userId") Long userId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to,
+                                @Param("afterId") Long afterId,
+                                Limit limit);
+
+    /**
+     * Orders created before name/price snapshots existed, in ID order after the given one.
+     */
+    @Query("select o.id from Order o where o.totalPrice is null and o.id > :afterId order by o.id")
+    List<Long> findIdsWithoutSnapshot(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Items of the given orders that have no name/price snapshot yet.
+     */
+    @Query("select i from OrderItem i where i.order.id in :orderIds and i.unitPrice is null")
+    List<OrderItem> findItemsWithoutSnapshotByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Fills the totals of the given orders from their item snapshots, only where the totals are still empty
+     * and every item has a snapshot. A conditional UPDATE rather than a dirty-checked entity, so concurrent
+     * status transitions are never overwritten and never fail it. The version is bumped because the order
+     * representation changes. Returns the orders updated.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            UPDATE orders o
+            SET total_quantity = t.total_quantity, total_price = t.total_price, version = o.version + 1
+            FROM (
+                SELECT order_id, sum(quantity) AS total_quantity, sum(unit_price * quantity) AS total_price
+                FROM order_items
+                WHERE order_id IN (:ids)
+                GROUP BY order_id
+                HAVING count(unit_price) = count(*)
+            ) t
+            WHERE o.id = t.order_id
+              AND o.total_price IS NULL
+            RETURNING o.id AS "id", o.user_id AS "userId"
+            """)
+    List<BackfilledOrderRow> fillMissingTotals(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Users with orders, in ID order after the given one.
+     */
+    @Query("select distinct o.userId from Order o where o.userId > :afterUserId order by o.userId")
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, Limit limit);
 }
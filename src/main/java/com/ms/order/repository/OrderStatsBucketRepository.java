@@ -0,0 +1,83 @@
+package com.ms.order.repository;
+
+import com.ms.order.model.OrderStatsBucket;
+import com.ms.order.model.OrderStatsBucketId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderStatsBucketRepository extends JpaRepository<OrderStatsBucket, OrderStatsBucketId> {
+
+    /**
+     * Adds orders and cancellations to a MINUTE bucket, creating it on the first event.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO order_stats_bucket AS b (granularity, bucket_start, payment_method,
+                                                 order_count, revenue, cancelled_count, cancelled_revenue)
+            VALUES ('MINUTE', :bucketStart, :paymentMethod, :orders, :revenue, :cancelled, :cancelledRevenue)
+            ON CONFLICT (granularity, bucket_start, payment_method) DO UPDATE SET
+                order_count = b.order_count + EXCLUDED.order_count,
+                revenue = b.revenue + EXCLUDED.revenue,
+                cancelled_count = b.cancelled_count + EXCLUDED.cancelled_count,
+                cancelled_revenue = b.cancelled_revenue + EXCLUDED.cancelled_revenue
+            """)
+    void add(@Param("bucketStart") LocalDateTime bucketStart,
+             @Param("paymentMethod") String paymentMethod,
+             @Param("orders") long orders,
+             @Param("revenue") BigDecimal revenue,
+             @Param("cancelled") long cancelled,
+             @Param("cancelledRevenue") BigDecimal cancelledRevenue);
+
+    /**
+     * Moves the buckets of one granularity that start before the given time into the coarser one,
+     * in one statement: the rows are deleted and their sums added to the target buckets.
+     * Rows already moved by a concurrent compaction are skipped, so nothing is counted twice.
+     * Returns the number of target buckets written.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH moved AS (
+                DELETE FROM order_stats_bucket
+                WHERE granularity = :source AND bucket_start < :before
+                RETURNING bucket_start, payment_method, order_count, revenue, cancelled_count, cancelled_revenue
+            )
+            INSERT INTO order_stats_bucket AS b (granularity, bucket_start, payment_method,
+                                                 order_count, revenue, cancelled_count, cancelled_revenue)
+            SELECT :target, date_trunc(:field, bucket_start), payment_method,
+                   sum(order_count), sum(revenue), sum(cancelled_count), sum(cancelled_revenue)
+            FROM moved
+            GROUP BY 2, 3
+            ON CONFLICT (granularity, bucket_start, payment_method) DO UPDATE SET
+                order_count = b.order_count + EXCLUDED.order_count,
+                revenue = b.revenue + EXCLUDED.revenue,
+                cancelled_count = b.cancelled_count + EXCLUDED.cancelled_count,
+                cancelled_revenue = b.cancelled_revenue + EXCLUDED.cancelled_revenue
+            """)
+    int compact(@Param("source") String source,
+                @Param("target") String target,
+                @Param("field") String field,
+                @Param("before") LocalDateTime before);
+
+    /**
+     * Sums of the buckets starting in [from, to), per date_trunc(field) and payment method.
+     * Only valid when no bucket in the range is coarser than the requested field.
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT date_trunc(:field, bucket_start) AS "bucketStart", payment_method AS "paymentMethod",
+                   sum(order_count) AS "orderCount", sum(revenue) AS "revenue",
+                   sum(cancelled_count) AS "cancelledCount", sum(cancelled_revenue) AS "cancelledRevenue"
+            FROM order_stats_bucket
+            WHERE bucket_start >= :from AND bucket_start < :to
+            GROUP BY 1, 2
+            ORDER BY 1, 2
+            """)
+    List<OrderStatsRow> findSeries(@Param("field") String field,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("to") LocalDateTime to);
+}
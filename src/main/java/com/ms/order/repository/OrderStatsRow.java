@@ -0,0 +1,21 @@
+package com.ms.order.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by {@link OrderStatsBucketRepository#findSeries}: the sums of one bucket and payment method.
+ */
+public interface OrderStatsRow {
+    LocalDateTime getBucketStart();
+
+    String getPaymentMethod();
+
+    Long getOrderCount();
+
+    BigDecimal getRevenue();
+
+    Long getCancelledCount();
+
+    BigDecimal getCancelledRevenue();
+}
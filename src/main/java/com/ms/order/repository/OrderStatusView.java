@@ -0,0 +1,16 @@
+package com.ms.order.repository;
+
+import com.ms.order.enums.OrderStatus;
+
+/**
+ * Status of an order without its items, used to explain a rejected transition.
+ */
+public interface OrderStatusView {
+    Long getId();
+
+    OrderStatus getStatus();
+
+    Long getUserId();
+
+    Long getVersion();
+}
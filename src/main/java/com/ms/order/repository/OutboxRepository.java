@@ -0,0 +1,59 @@
+package com.ms.order.repository;
+
+import com.ms.order.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Claims the oldest pending events until leaseUntil and counts the attempt. Rows locked by another
+     * relay instance, or still claimed by one, are skipped, so several instances can drain the outbox in
+     * parallel. The claim is committed before publishing: an instance that dies mid-batch only delays
+     * its events until the lease ends. The result order is unspecified.
+     */
+    @Transactional
+    @Query(nativeQuery = true, value = """
+            UPDATE outbox
+            SET claimed_until = :leaseUntil, attempts = attempts + 1
+            WHERE id IN (
+                SELECT id FROM outbox
+                WHERE sent_at IS NULL
+                  AND parked_at IS NULL
+                  AND (claimed_until IS NULL OR claimed_until < :now)
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """)
+    List<OutboxEvent> claimNextBatch(@Param("limit") int limit,
+                                     @Param("now") LocalDateTime now,
+                                     @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.sentAt = :sentAt, e.claimedUntil = null where e.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Releases claimed events for another attempt, not before retryAt.
+     */
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedUntil = :retryAt where e.id in :ids")
+    int retryAt(@Param("ids") Collection<Long> ids, @Param("retryAt") LocalDateTime retryAt);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.parkedAt = :parkedAt, e.claimedUntil = null where e.id in :ids")
+    int park(@Param("ids") Collection<Long> ids, @Param("parkedAt") LocalDateTime parkedAt);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,24 @@
+package com.ms.order.repository;
+
+import com.ms.order.enums.PaymentMethod;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by {@link OrderRepository#transitionStatuses}, and the base of {@link TransitionedOrderRow}.
+ */
+public interface StatusTransitionRow {
+    Long getId();
+
+    Long getUserId();
+
+    String getPreviousStatus();
+
+    Long getVersion();
+
+    PaymentMethod getPaymentMethod();
+
+    BigDecimal getTotalPrice();
+
+    LocalDateTime getCreatedAt();
+}
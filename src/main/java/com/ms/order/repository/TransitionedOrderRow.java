@@ -0,0 +1,13 @@
+package com.ms.order.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by {@link OrderRepository#transitionStatus}: the transition plus the order header,
+ * so callers can answer without reading the order again.
+ */
+public interface TransitionedOrderRow extends StatusTransitionRow {
+    Integer getTotalQuantity();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,115 @@
+package com.ms.order.repository;
+
+import com.ms.order.model.UserOrderSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+    /**
+     * Adds new PENDING orders to a user's summary, creating it on the first order.
+     * A single upsert, so concurrent first orders of the same user cannot conflict.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO user_order_summary AS s (user_id, order_count, total_spent, pending_count, processing_count,
+                                                 shipped_count, delivered_count, cancelled_count, last_order_at, updated_at)
+            VALUES (:userId, :orders, :spent, :orders, 0, 0, 0, 0, :lastOrderAt, :now)
+            ON CONFLICT (user_id) DO UPDATE SET
+                order_count = s.order_count + EXCLUDED.order_count,
+                total_spent = s.total_spent + EXCLUDED.total_spent,
+                pending_count = s.pending_count + EXCLUDED.pending_count,
+                last_order_at = GREATEST(s.last_order_at, EXCLUDED.last_order_at),
+                updated_at = EXCLUDED.updated_at
+            """)
+    void addOrders(@Param("userId") Long userId,
+                   @Param("orders") long orders,
+                   @Param("spent") BigDecimal spent,
+                   @Param("lastOrderAt") LocalDateTime lastOrderAt,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Applies status count and total spent deltas. Returns 0 if the user has no summary yet.
+     */
+    @Modifying
+    @Query("""
+            update UserOrderSummary s set
+                s.pendingCount = s.pendingCount + :pending,
+                s.processingCount = s.processingCount + :processing,
+                s.shippedCount = s.shippedCount + :shipped,
+                s.deliveredCount = s.deliveredCount + :delivered,
+                s.cancelledCount = s.cancelledCount + :cancelled,
+                s.totalSpent = s.totalSpent + :spent,
+                s.updatedAt = :now
+            where s.userId = :userId""")
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("pending") long pending,
+                   @Param("processing") long processing,
+                   @Param("shipped") long shipped,
+                   @Param("delivered") long delivered,
+                   @Param("cancelled") long cancelled,
+                   @Param("spent") BigDecimal spent,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Inserts an empty summary for each of the given users that has none, in ID order. Until the inserting
+     * transaction ends, a concurrent first order of one of these users waits on the new row in
+     * {@link #addOrders} instead of creating its own summary.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO user_order_summary (user_id, order_count, total_spent, pending_count, processing_count,
+                                            shipped_count, delivered_count, cancelled_count, last_order_at, updated_at)
+            SELECT u.user_id, 0, 0, 0, 0, 0, 0, 0, NULL, :now
+            FROM unnest(CAST(ARRAY[:userIds] AS BIGINT[])) AS u(user_id)
+            ORDER BY u.user_id
+            ON CONFLICT (user_id) DO NOTHING
+            """)
+    void insertMissing(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+
+    /**
+     * Locks the existing summaries of the given users, in ID order.
+     */
+    @Query(nativeQuery = true, value = "SELECT user_id FROM user_order_summary WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE")
+    List<Long> lockByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Recomputes the summaries of the given users from their orders.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO user_order_summary AS s (user_id, order_count, total_spent, pending_count, processing_count,
+                                                 shipped_count, delivered_count, cancelled_count, last_order_at, updated_at)
+            SELECT user_id,
+                   count(*),
+                   coalesce(sum(total_price) FILTER (WHERE status <> 'CANCELLED'), 0),
+                   count(*) FILTER (WHERE status = 'PENDING'),
+                   count(*) FILTER (WHERE status = 'PROCESSING'),
+                   count(*) FILTER (WHERE status = 'SHIPPED'),
+                   count(*) FILTER (WHERE status = 'DELIVERED'),
+                   count(*) FILTER (WHERE status = 'CANCELLED'),
+                   max(created_at),
+                   :now
+            FROM orders
+            WHERE user_id IN (:userIds)
+            GROUP BY user_id
+            ON CONFLICT (user_id) DO UPDATE SET
+                order_count = EXCLUDED.order_count,
+                total_spent = EXCLUDED.total_spent,
+                pending_count = EXCLUDED.pending_count,
+                processing_count = EXCLUDED.processing_count,
+                shipped_count = EXCLUDED.shipped_count,
+                delivered_count = EXCLUDED.delivered_count,
+                cancelled_count = EXCLUDED.cancelled_count,
+                last_order_at = EXCLUDED.last_order_at,
+                updated_at = EXCLUDED.updated_at
+            """)
+    void rebuild(@Param("userIds") Collection<Long> userIds, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,38 @@
+package com.ms.order.service;
+
+import com.ms.order.exception.ValidationException;
+import com.ms.order.model.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of an order in the (created_at desc, id desc) listing order,
+ * exchanged with clients as an opaque token.
+ */
+record OrderCursor(LocalDateTime createdAt, Long id) {
+    private static final String SEPARATOR = "|";
+
+    static OrderCursor of(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new OrderCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new ValidationException("cursor", token, "malformed cursor");
+        }
+    }
+}
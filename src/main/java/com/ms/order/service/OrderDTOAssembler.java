@@ -0,0 +1,136 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderItemDTO;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the order DTOs returned by the API. Items with a snapshot are mapped in memory; products of
+ * items created before snapshots existed are resolved in a single lookup for the whole set.
+ *
+ * While ProductService is unavailable, legacy items are built from last-known product data and flagged
+ * stale rather than dropped; only items of products that no longer exist are left out.
+ *
+ * This runs for every order of every listing, so it loops instead of streaming and pre-sizes its lists
+ * (see OrderDTOAssemblyBenchmark).
+ */
+@Component
+class OrderDTOAssembler {
+    private final ProductLookupService productLookupService;
+
+    OrderDTOAssembler(ProductLookupService productLookupService) {
+        this.productLookupService = productLookupService;
+    }
+
+    List<OrderDTO> toOrderDTOs(List<Order> orders) {
+        ProductLookup products = productLookupService.findProductsForDisplay(legacyProductIds(orders));
+
+        List<OrderDTO> dtos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            dtos.add(toOrderDTO(order, products));
+        }
+        return Collections.unmodifiableList(dtos);
+    }
+
+    OrderDTO toOrderDTO(Order order) {
+        return toOrderDTOs(List.of(order)).getFirst();
+    }
+
+    /**
+     * Products of items without a snapshot. Empty, without allocating, in the common case.
+     */
+    private static Set<Long> legacyProductIds(List<Order> orders) {
+        Set<Long> productIds = null;
+        for (Order order : orders) {
+            for (OrderItem item : order.getItems()) {
+                if (!item.hasSnapshot()) {
+                    if (productIds == null) {
+                        productIds = new HashSet<>();
+                    }
+                    productIds.add(item.getProductId());
+                }
+            }
+        }
+        return productIds == null ? Set.of() : productIds;
+    }
+
+    /**
+     * Maps the items and computes the totals in a single pass. Stored totals are used when present,
+     * so only orders created before snapshots existed sum their items.
+     */
+    private OrderDTO toOrderDTO(Order order, ProductLookup products) {
+        List<OrderItem> items = order.getItems();
+        boolean sumPrice = order.getTotalPrice() == null;
+
+        List<OrderItemDTO> itemDTOs = items.isEmpty() ? List.of() : new ArrayList<>(items.size());
+        int totalQuantity = 0;
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            OrderItemDTO itemDTO = toOrderItemDTO(item, products);
+            // Legacy items whose products no longer exist are left out
+            if (itemDTO == null) {
+                continue;
+            }
+            itemDTOs.add(itemDTO);
+            totalQuantity += itemDTO.quantity();
+            // Unknown prices (stale items) are left out of the total
+            if (sumPrice && itemDTO.totalPrice() != null) {
+                totalPrice = totalPrice.add(itemDTO.totalPrice());
+            }
+        }
+
+        return new OrderDTO(
+                order.getId(),
+                order.getUserId(),
+                order.getStatus(),
+                order.getUpdatedAt(),
+                order.getCreatedAt(),
+                itemDTOs.isEmpty() ? List.of() : Collections.unmodifiableList(itemDTOs),
+                order.getPaymentMethod(),
+                order.getTotalQuantity() != null ? order.getTotalQuantity() : Integer.valueOf(totalQuantity),
+                sumPrice ? totalPrice : order.getTotalPrice(),
+                order.getVersion()
+        );
+    }
+
+    private static OrderItemDTO toOrderItemDTO(OrderItem item, ProductLookup products) {
+        if (item.hasSnapshot()) {
+            return new OrderItemDTO(
+                    item.getId(),
+                    item.getProductName(),
+                    item.getProductId(),
+                    item.getQuantity(),
+                    item.getUnitPrice(),
+                    item.getTotalPrice(),
+                    false
+            );
+        }
+
+        InternalProductDTO product = products.get(item.getProductId());
+        boolean stale = products.isStale(item.getProductId());
+        if (product == null) {
+            return stale
+                    ? new OrderItemDTO(item.getId(), null, item.getProductId(), item.getQuantity(), null, null, true)
+                    : null;
+        }
+        return new OrderItemDTO(
+                item.getId(),
+                product.name(),
+                item.getProductId(),
+                item.getQuantity(),
+                product.price(),
+                product.price().multiply(BigDecimal.valueOf(item.getQuantity())),
+                stale
+        );
+    }
+}
@@ -0,0 +1,86 @@
+package com.ms.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderStatusChangedBatch;
+import com.ms.order.dto.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of fully assembled orders keyed by ID, used by single-order reads.
+ *
+ * An order is evicted as soon as a status change commits, locally through {@link OrderStatusChangedEvent}
+ * and on the other replicas through the order.status-changed broadcast. The TTL only bounds staleness
+ * if a broadcast is lost. Metrics are exposed as "cache.*" tagged cache=orderDTO.
+ */
+@Component
+@Slf4j
+public class OrderDTOCache implements MeterBinder {
+    private static final String CACHE_NAME = "orderDTO";
+
+    private final Cache<Long, OrderDTO> cache;
+
+    OrderDTOCache(@Value("${app.order.cache.max-size:10000}") long maxSize,
+                  @Value("${app.order.cache.ttl:PT1M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached order or loads it. Concurrent misses for the same ID share one load,
+     * and an eviction racing with a load waits for it, so a stale load is never left behind.
+     * Orders built from last-known product data are not kept, the next read tries again.
+     */
+    public OrderDTO get(Long orderId, Function<Long, OrderDTO> loader) {
+        OrderDTO order = cache.get(orderId, loader);
+        if (order.hasStaleItems()) {
+            cache.asMap().remove(orderId, order);
+        }
+        return order;
+    }
+
+    public void invalidate(Long orderId) {
+        cache.invalidate(orderId);
+        log.debug("Order {} evicted from order cache", orderId);
+    }
+
+    public void invalidateAll(Collection<Long> orderIds) {
+        cache.invalidateAll(orderIds);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        invalidate(event.orderId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatusesChanged(OrderStatusChangedBatch batch) {
+        invalidateAll(batch.events().stream().map(OrderStatusChangedEvent::orderId).toList());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache, CACHE_NAME, Tags.empty()).bindTo(registry);
+    }
+}
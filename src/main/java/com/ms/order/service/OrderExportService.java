@@ -0,0 +1,160 @@
+package com.ms.order.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderExportFilter;
+import com.ms.order.dto.OrderItemDTO;
+import com.ms.order.enums.ExportFormat;
+import com.ms.order.model.Order;
+import com.ms.order.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streams orders to an output stream as NDJSON (one order per line) or CSV (one item per line).
+ *
+ * Orders are read by keyset in chunks of app.export.chunk-size, each in its own short read-only
+ * transaction: the next IDs after the last exported one, then those orders with their items.
+ * Product lookups for legacy items and the writes to the client happen after that transaction ended,
+ * so a slow client never holds a pooled connection or a database snapshot. Each chunk is consistent
+ * on its own; an order changed during the download is exported as it was when its chunk was read.
+ */
+@Service
+@Slf4j
+public class OrderExportService {
+    private static final String CSV_HEADER = "order_id,user_id,status,payment_method,created_at,updated_at,"
+            + "order_total_quantity,order_total_price,item_id,product_id,product_name,quantity,unit_price,item_total_price";
+
+    private final OrderRepository repository;
+
+    private final OrderService orderService;
+
+    private final OrderDTOAssembler orderDTOAssembler;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectWriter jsonWriter;
+
+    private final int chunkSize;
+
+    OrderExportService(OrderRepository repository,
+                       OrderService orderService,
+                       OrderDTOAssembler orderDTOAssembler,
+                       EntityManager entityManager,
+                       PlatformTransactionManager transactionManager,
+                       ObjectMapper objectMapper,
+                       @Value("${app.export.chunk-size:500}") int chunkSize) {
+        this.repository = repository;
+        this.orderService = orderService;
+        this.orderDTOAssembler = orderDTOAssembler;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // The response stream is flushed once per chunk and closed by the container
+        this.jsonWriter = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = chunkSize;
+    }
+
+    public void export(OrderExportFilter filter, ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        int exported = 0;
+        long afterId = 0;
+        try {
+            Chunk chunk;
+            do {
+                long lastId = afterId;
+                chunk = transactionTemplate.execute(status -> readChunk(filter, lastId));
+                writeChunk(orderDTOAssembler.toOrderDTOs(chunk.orders()), format, writer);
+                exported += chunk.orders().size();
+                afterId = chunk.lastId();
+            } while (chunk.ids() == chunkSize);
+        } catch (IOException e) {
+            // Usually the client going away mid-download
+            log.warn("Order export aborted: {}", e.getMessage());
+            throw e;
+        }
+
+        log.info("Order export finished. Format: {}, Orders: {}", format, exported);
+    }
+
+    private Chunk readChunk(OrderExportFilter filter, long afterId) {
+        List<Long> ids = repository.findIdsForExport(filter.status(), filter.userId(), filter.from(), filter.to(),
+                afterId, Limit.of(chunkSize));
+        List<Order> orders = orderService.findAllWithItemsInOrder(ids);
+
+        // The items are loaded, nothing of a chunk is needed by the persistence context again
+        entityManager.clear();
+        return new Chunk(ids.size(), ids.isEmpty() ? afterId : ids.getLast(), orders);
+    }
+
+    private void writeChunk(List<OrderDTO> orders, ExportFormat format, Writer writer) throws IOException {
+        for (OrderDTO order : orders) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(order, writer);
+            } else {
+                jsonWriter.writeValue(writer, order);
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(OrderDTO order, Writer writer) throws IOException {
+        for (OrderItemDTO item : order.items()) {
+            writer.write(String.join(",",
+                    csv(order.id()),
+                    csv(order.userId()),
+                    csv(order.status()),
+                    csv(order.paymentMethod()),
+                    csv(order.createdAt()),
+                    csv(order.updatedAt()),
+                    csv(order.totalQuantity()),
+                    csv(order.totalPrice()),
+                    csv(item.id()),
+                    csv(item.productId()),
+                    csv(item.name()),
+                    csv(item.quantity()),
+                    csv(item.priceAmount()),
+                    csv(item.totalPrice())));
+            writer.write('\n');
+        }
+    }
+
+    private static String csv(Object value) {
+        String text = Objects.toString(value, "");
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    // An order deleted between both queries of a chunk is skipped, the keyset still moves past it
+    private record Chunk(int ids, long lastId, List<Order> orders) {
+    }
+}
@@ -1,26 +1,38 @@
 package com.ms.order.service;
 
 import com.ms.order.auth.CurrentUserService;
-import com.ms.order.client.ProductService;
 import com.ms.order.dto.*;
 import com.ms.order.exception.ResourceNotFoundException;
 import com.ms.order.exception.InvalidOperationException;
+import com.ms.order.exception.PreconditionFailedException;
+import com.ms.order.exception.StaleVersionException;
 import com.ms.order.enums.OrderStatus;
 import com.ms.order.model.Order;
 import com.ms.order.model.OrderItem;
 import com.ms.order.producer.OrderProducer;
+import com.ms.order.repository.OrderItemRow;
 import com.ms.order.repository.OrderRepository;
+import com.ms.order.repository.OrderStatusView;
+import com.ms.order.repository.StatusTransitionRow;
+import com.ms.order.repository.TransitionedOrderRow;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,16 +42,31 @@ import org.springframework.transaction.annotation.Transactional;
 @AllArgsConstructor
 @Slf4j
 public class OrderService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderRepository repository;
 
-    private final ProductService productService;
+    private final ProductLookupService productLookupService;
+
+    private final OrderDTOAssembler orderDTOAssembler;
 
     private final OrderProducer orderProducer;
 
     private final CurrentUserService currentUserService;
 
+    private final OrderDTOCache orderDTOCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final RecentCheckoutFilter recentCheckoutFilter;
+
+    private final UserOrderSummaryService userOrderSummaryService;
+
+    private final OrderStatsService orderStatsService;
+
     /**
      * Publishes UpdateStockEvent to ProductService after order creation.
+     * The event is written to the outbox, so it must be called in the order's transaction.
      */
     public void publishUpdateStockEvent(UpdateStockEvent event) {
         orderProducer.publishUpdateStockEvent(event);
@@ -53,46 +80,209 @@ public class OrderService {
     public void handleStockUpdateFailure(StockUpdateFailedEvent event) {
         log.error("Stock update failed for order: {}. Automatically cancelling order.", event.orderId());
         
-        try {
-            Order order = findOrderById(event.orderId());
-            
-            // Only cancel if order is still in a cancellable state
-            if (order.getStatus() == OrderStatus.PENDING || order.getStatus() == OrderStatus.PROCESSING) {
-                order.setStatus(OrderStatus.CANCELLED);
-                order.setUpdatedAt(LocalDateTime.now());
-                repository.save(order);
-                
-                log.info("Order {} automatically cancelled due to stock update failure", event.orderId());
-            } else {
-                log.warn("Order {} cannot be cancelled. Current status: {}", event.orderId(), order.getStatus());
-            }
-        } catch (Exception e) {
-            log.error("Error cancelling order {} after stock update failure", event.orderId(), e);
+        // Only cancels if the order is still in a cancellable state, in a single statement
+        StatusTransitionResult result = transitionStatus(event.orderId(), OrderStatus.CANCELLED, null, null);
+        if (result.applied()) {
+            log.info("Order {} automatically cancelled due to stock update failure", event.orderId());
+        } else {
+            log.warn("Order {} cannot be cancelled. Outcome: {}, Current status: {}",
+                    event.orderId(), result.outcome(), result.fromStatus());
         }
     }
 
 
+    /**
+     * Served from the {@link OrderDTOCache}, which every status change evicts.
+     */
     public OrderDTO findById(Long id){
-        return buildOrderDTO(repository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Order", id)));
+        return orderDTOCache.get(id, this::loadOrderDTO);
+    }
+
+    /**
+     * Same as {@link #findById(Long)}, but never returns a cached copy older than the given version.
+     */
+    public OrderDTO findById(Long id, long minVersion) {
+        OrderDTO order = findById(id);
+        if (order.version() < minVersion) {
+            orderDTOCache.invalidate(id);
+            order = findById(id);
+        }
+        return order;
+    }
+
+    /**
+     * Version of a single order, read without loading its items. Used to answer conditional GETs.
+     */
+    public OrderVersion findVersion(Long id) {
+        return repository.findVersionById(id).orElseThrow(() -> new ResourceNotFoundException("Order", id));
+    }
+
+    public OrderListVersion findUserOrdersVersion(Long userId) {
+        return repository.findListVersionByUserId(userId);
+    }
+
+    private OrderDTO loadOrderDTO(Long id) {
+        return orderDTOAssembler.toOrderDTO(repository.findWithItemsById(id).orElseThrow(() -> new ResourceNotFoundException("Order", id)));
+    }
+
+    /**
+     * Current status of an order, as the first event of a status stream.
+     */
+    public OrderStatusChangedEvent findCurrentStatus(Long orderId, Long userId) {
+        OrderDTO order = findById(orderId);
+        if (!currentUserService.isAdmin() && !order.userId().equals(userId)) {
+            throw new InvalidOperationException("watch order", "user can only watch their own orders");
+        }
+        return new OrderStatusChangedEvent(order.id(), order.userId(), null, order.status(), order.updatedAt());
     }
 
     public List<OrderDTO> findByUserId(Long id){
-        return repository.findByUserId(id).stream().map(this::buildOrderDTO).toList();
+        return orderDTOAssembler.toOrderDTOs(repository.findByUserId(id));
     }
 
+    /**
+     * Loads a page in two queries regardless of its size: the page IDs first,
+     * then all orders of the page with their items.
+     */
     public List<OrderDTO> getAllOrders(Pageable pageable){
-        return repository.findAll(pageable)
-                .map(this::buildOrderDTO)
-                .getContent();
+        List<Long> ids = repository.findPageIds(pageable);
+        return orderDTOAssembler.toOrderDTOs(findAllWithItemsInOrder(ids));
+    }
+
+    /**
+     * Cursor-based listing of all orders, newest first.
+     */
+    public OrderPageDTO scrollAllOrders(String after, int size) {
+        int limit = normalizePageSize(size);
+        List<Long> ids;
+        if (after == null) {
+            ids = repository.findKeysetIds(Limit.of(limit + 1));
+        } else {
+            OrderCursor cursor = OrderCursor.decode(after);
+            ids = repository.findKeysetIdsAfter(cursor.createdAt(), cursor.id(), Limit.of(limit + 1));
+        }
+        return buildOrderPage(ids, limit);
+    }
+
+    /**
+     * Cursor-based listing of a user's orders, newest first.
+     */
+    public OrderPageDTO scrollByUserId(Long userId, String after, int size) {
+        int limit = normalizePageSize(size);
+        List<Long> ids;
+        if (after == null) {
+            ids = repository.findKeysetIdsByUserId(userId, Limit.of(limit + 1));
+        } else {
+            OrderCursor cursor = OrderCursor.decode(after);
+            ids = repository.findKeysetIdsByUserIdAfter(userId, cursor.createdAt(), cursor.id(), Limit.of(limit + 1));
+        }
+        return buildOrderPage(ids, limit);
+    }
+
+    private int normalizePageSize(int size) {
+        return Math.clamp(size, 1, MAX_PAGE_SIZE);
+    }
+
+    // One extra ID is fetched to know whether there is a next page
+    private OrderPageDTO buildOrderPage(List<Long> ids, int limit) {
+        boolean hasNext = ids.size() > limit;
+        List<Order> orders = findAllWithItemsInOrder(hasNext ? ids.subList(0, limit) : ids);
+
+        String nextCursor = hasNext ? OrderCursor.of(orders.getLast()).encode() : null;
+        return new OrderPageDTO(orderDTOAssembler.toOrderDTOs(orders), nextCursor);
+    }
+
+    /**
+     * Orders of the given IDs with their items, in the same order, in one query.
+     */
+    List<Order> findAllWithItemsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Order> ordersById = repository.findAllWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        // Restore the order of the page query
+        return ids.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Carts among the given ones that already have an order. Recently processed carts are answered
+     * from memory; the others with a single query.
+     */
+    public Set<Long> findProcessedCartIds(Collection<Long> cartIds) {
+        Set<Long> processed = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long cartId : cartIds) {
+            if (cartId == null) {
+                continue;
+            }
+            if (recentCheckoutFilter.contains(cartId)) {
+                processed.add(cartId);
+            } else {
+                unknown.add(cartId);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            Set<Long> stored = repository.findCartIdsIn(unknown);
+            recentCheckoutFilter.add(stored);
+            processed.addAll(stored);
+        }
+        return processed;
+    }
+
+    public boolean isCheckoutProcessed(Long cartId) {
+        return cartId != null && !findProcessedCartIds(List.of(cartId)).isEmpty();
     }
 
     @Transactional
     public OrderDTO createOrder(CreateOrderDTO orderData) {
+        return createOrders(List.of(orderData)).getFirst();
+    }
+
+    /**
+     * Creates several orders in the current transaction, resolving the products
+     * of all of them in a single lookup. The result keeps the input order.
+     */
+    @Transactional
+    public List<OrderDTO> createOrders(List<CreateOrderDTO> ordersData) {
+        // Snapshot name and price once, so reads never depend on ProductService
+        Set<Long> productIds = ordersData.stream()
+                .flatMap(orderData -> orderData.items().stream())
+                .map(CreateOrderDTO.CreateOrderItemDTO::productId)
+                .collect(Collectors.toSet());
+        Map<Long, InternalProductDTO> productMap = productLookupService.findProductsByIds(productIds);
+
+        List<Order> orders = ordersData.stream()
+                .map(orderData -> buildOrder(orderData, productMap))
+                .toList();
+
+        // Save orders. Flushed here so a duplicate cart fails inside the caller's error handling
+        List<Order> savedOrders = repository.saveAllAndFlush(orders);
+        userOrderSummaryService.recordCreated(savedOrders);
+        orderStatsService.recordCreated(savedOrders);
+        recentCheckoutFilter.addAfterCommit(savedOrders.stream()
+                .map(Order::getCartId)
+                .filter(Objects::nonNull)
+                .toList());
+        savedOrders.forEach(savedOrder ->
+                log.info("Order created successfully. ID: {}, User: {}", savedOrder.getId(), savedOrder.getUserId()));
+
+        return orderDTOAssembler.toOrderDTOs(savedOrders);
+    }
+
+    private Order buildOrder(CreateOrderDTO orderData, Map<Long, InternalProductDTO> productMap) {
         log.info("Creating order for user: {}", orderData.userId());
 
         // Create order
         Order order = Order.builder()
                 .userId(orderData.userId())
+                .cartId(orderData.cartId())
                 .status(OrderStatus.PENDING)
                 .paymentMethod(orderData.paymentMethod())
                 .createdAt(LocalDateTime.now())
@@ -102,143 +292,216 @@ public class OrderService {
         // Create order items
         List<OrderItem> orderItems = orderData.items().stream()
                 .map(item -> {
-                    OrderItem orderItem = new OrderItem(item.productId(), item.quantity());
+                    InternalProductDTO product = productMap.get(item.productId());
+                    if (product == null) {
+                        throw new ResourceNotFoundException("Product", item.productId());
+                    }
+                    OrderItem orderItem = new OrderItem(item.productId(), item.quantity(), product.name(), product.price());
                     orderItem.setOrder(order);
                     return orderItem;
                 })
                 .toList();
 
         order.setItems(orderItems);
-
-        // Save order
-        Order savedOrder = repository.save(order);
-        log.info("Order created successfully. ID: {}, User: {}", savedOrder.getId(), savedOrder.getUserId());
-
-        return buildOrderDTO(savedOrder);
+        order.updateTotals();
+        return order;
     }
 
-    private OrderDTO buildOrderDTO(Order order){
-
-        List<OrderItemDTO> items = buildOrderItemsDTO(order.getItems());
-
-        BigDecimal totalPrice = items.stream().map(OrderItemDTO::totalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Integer totalQuantity = items.stream().map(OrderItemDTO::quantity).reduce(0, Integer::sum);
-
-        return new OrderDTO(
-                order.getId(),
-                order.getUserId(),
-                order.getStatus(),
-                order.getUpdatedAt(),
-                order.getCreatedAt(),
-                items,
-                order.getPaymentMethod(),
-                totalQuantity,
-                totalPrice
-        );
-    }
-
-    private List<OrderItemDTO> buildOrderItemsDTO(List<OrderItem> items){
-        if (items.isEmpty()) {
-            return List.of();
-        }
-
-        // Extract unique product IDs
-        Set<Long> productIds = items.stream()
-                .map(OrderItem::getProductId)
-                .collect(Collectors.toSet());
-
-        // Fetch all products in a single call (avoids N+1)
-        Map<Long, InternalProductDTO> productMap = productService.findProductsByIds(productIds)
-                .stream()
-                .collect(Collectors.toMap(InternalProductDTO::id, Function.identity()));
-
-        // Iterate over original items to maintain order and process all
-        // Filter items whose products were not found
-        return items.stream()
-                .filter(item -> productMap.containsKey(item.getProductId()))
-                .map(item -> {
-                    InternalProductDTO product = productMap.get(item.getProductId());
-                    BigDecimal totalPrice = product.price()
-                            .multiply(BigDecimal.valueOf(item.getQuantity()));
-                    
-                    return new OrderItemDTO(
-                            item.getId(),
-                            product.name(),
-                            item.getProductId(),
-                            item.getQuantity(),
-                            product.price(),
-                            totalPrice
-                    );
-                })
-                .toList();
+    @Transactional
+    public OrderDTO cancelOrder(Long orderId, Long userId) {
+        return cancelOrder(orderId, userId, null);
     }
 
+    /**
+     * Cancels an order, optionally only if it is still at the given version (If-Match).
+     *
+     * No entity is loaded: the conditional UPDATE returns the order header and the items are read as a
+     * projection, so the cancellation reads and updates the order in two statements, plus the outbox insert and
+     * the summary and stats increments. The response is built from the item snapshots; the product service is
+     * only called for items created before snapshots existed.
+     */
     @Transactional
-    public OrderDTO cancelOrder(Long orderId, Long userId) {
+    public OrderDTO cancelOrder(Long orderId, Long userId, Long expectedVersion) {
         log.info("Starting order cancellation: {} by user: {}", orderId, userId);
 
-        Order order = findOrderById(orderId);
+        // Admins can cancel any order, regular users only their own
+        Long ownerId = currentUserService.isAdmin() ? null : userId;
+        LocalDateTime now = LocalDateTime.now();
+        TransitionedOrderRow cancelledOrder = applyTransition(orderId, OrderStatus.CANCELLED, expectedVersion, ownerId, now)
+                .orElseThrow(() -> cancellationRejected(explainRejectedTransition(orderId, OrderStatus.CANCELLED, ownerId), expectedVersion));
 
-        // Validate that the user owns the order
-        validateOrderOwnership(order, userId);
+        List<OrderItem> items = repository.findItemRowsByOrderId(orderId).stream()
+                .map(row -> new OrderItem(row.getId(), null, row.getProductId(), row.getQuantity(),
+                        row.getProductName(), row.getUnitPrice()))
+                .toList();
 
-        validateOrderStatusToCancel(order);
+        OrderCancelledEvent event = publishOrderCancelledEvent(orderId, cancelledOrder.getUserId(),
+                items.stream().map(item -> new OrderCancelledEvent.CancelledItem(item.getProductId(), item.getQuantity())).toList(),
+                now);
 
-        order.setStatus(OrderStatus.CANCELLED);
-        order.setUpdatedAt(LocalDateTime.now());
-        Order cancelledOrder = repository.save(order);
+        log.info("Order {} cancelled successfully. Event queued to restore stock for {} items",
+                orderId, event.items().size());
 
-        // Build cancellation event
-        OrderCancelledEvent event = new OrderCancelledEvent(
-                order.getId(),
-                order.getUserId(),
-                order.getItems().stream()
-                        .map(item -> new OrderCancelledEvent.CancelledItem(
-                                item.getProductId(),
-                                item.getQuantity()
-                        ))
-                        .toList(),
-                LocalDateTime.now()
-        );
+        return buildCancelledOrderDTO(cancelledOrder, items);
+    }
 
-        // Publish event to restore stock (via RabbitMQ)
+    /**
+     * Publishes the event that restores the stock of a cancelled order. Goes through the outbox,
+     * so it is sent once the cancelling transaction commits.
+     */
+    private OrderCancelledEvent publishOrderCancelledEvent(Long orderId, Long userId,
+                                                           List<OrderCancelledEvent.CancelledItem> items,
+                                                           LocalDateTime cancelledDate) {
+        OrderCancelledEvent event = new OrderCancelledEvent(orderId, userId, items, cancelledDate);
         orderProducer.publishOrderCancelledEvent(event);
+        return event;
+    }
 
-        log.info("Order {} cancelled successfully. Event published to restore stock for {} items",
-                orderId, event.items().size());
+    private OrderDTO buildCancelledOrderDTO(TransitionedOrderRow order, List<OrderItem> items) {
+        // Transient, only used to reuse the regular DTO assembly
+        return orderDTOAssembler.toOrderDTO(Order.builder()
+                .id(order.getId())
+                .userId(order.getUserId())
+                .status(OrderStatus.CANCELLED)
+                .items(items)
+                .paymentMethod(order.getPaymentMethod())
+                .totalQuantity(order.getTotalQuantity())
+                .totalPrice(order.getTotalPrice())
+                .version(order.getVersion())
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getUpdatedAt())
+                .build());
+    }
 
-        return buildOrderDTO(cancelledOrder);
+    /**
+     * Moves an order to the given status in a single conditional UPDATE, only along the transitions
+     * allowed by {@link OrderStatus}. Safe under concurrent transitions of the same order: the loser
+     * sees the winner's status and is rejected, nothing is overwritten.
+     *
+     * Every status change goes through here, so the user summaries and order stats are updated in the
+     * same transaction and caches, replicas and status streams are always told about it once it commits.
+     *
+     * @param expectedVersion apply only at this version, null to skip the check
+     * @param ownerId apply only to orders of this user, null to skip the check
+     */
+    @Transactional
+    public StatusTransitionResult transitionStatus(Long orderId, OrderStatus status, Long expectedVersion, Long ownerId) {
+        return applyTransition(orderId, status, expectedVersion, ownerId, LocalDateTime.now())
+                .map(row -> new StatusTransitionResult(StatusTransitionResult.Outcome.APPLIED, orderId, row.getUserId(),
+                        OrderStatus.valueOf(row.getPreviousStatus()), status, row.getVersion()))
+                .orElseGet(() -> explainRejectedTransition(orderId, status, ownerId));
     }
 
-    private Order findOrderById(Long id){
-        return repository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order", id));
+    private Optional<TransitionedOrderRow> applyTransition(Long orderId, OrderStatus status, Long expectedVersion,
+                                                           Long ownerId, LocalDateTime now) {
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(status);
+        if (sources.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<TransitionedOrderRow> applied = repository.transitionStatus(orderId,
+                sources.stream().map(Enum::name).toList(), status.name(), expectedVersion, ownerId, now);
+        applied.ifPresent(row -> {
+            userOrderSummaryService.recordTransitions(status, List.of(row));
+            orderStatsService.recordTransitions(status, List.of(row));
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(
+                    orderId, row.getUserId(), OrderStatus.valueOf(row.getPreviousStatus()), status, now));
+        });
+        return applied;
     }
 
-    private void validateOrderOwnership(Order order, Long userId) {
-        // Admins can cancel any order
-        if (currentUserService.isAdmin()) {
-            return;
+    /**
+     * Set-based form of {@link #transitionStatus(Long, OrderStatus, Long, Long)}: moves all the given orders
+     * to the same status with one UPDATE and returns a result per order, in the given order.
+     * The changes are published as a single {@link OrderStatusChangedBatch}. Cancelled orders get the same
+     * {@link OrderCancelledEvent} as a single cancellation, built from one read of the items of all of them.
+     */
+    @Transactional
+    public List<StatusTransitionResult> transitionStatuses(OrderStatus status, List<Long> orderIds) {
+        Set<OrderStatus> sources = OrderStatus.sourcesOf(status);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<StatusTransitionRow> rows = sources.isEmpty()
+                ? List.of()
+                : repository.transitionStatuses(orderIds, sources.stream().map(Enum::name).toList(), status.name(), now);
+
+        Map<Long, StatusTransitionResult> results = new HashMap<>();
+        List<OrderStatusChangedEvent> events = new ArrayList<>(rows.size());
+        for (StatusTransitionRow row : rows) {
+            OrderStatus previousStatus = OrderStatus.valueOf(row.getPreviousStatus());
+            events.add(new OrderStatusChangedEvent(row.getId(), row.getUserId(), previousStatus, status, now));
+            results.put(row.getId(), new StatusTransitionResult(StatusTransitionResult.Outcome.APPLIED,
+                    row.getId(), row.getUserId(), previousStatus, status, row.getVersion()));
         }
-        
-        // Regular users can only cancel their own orders
-        if (!order.getUserId().equals(userId)) {
-            throw new InvalidOperationException("cancel order", "user can only cancel their own orders");
+
+        List<Long> rejected = orderIds.stream().filter(id -> !results.containsKey(id)).distinct().toList();
+        if (!rejected.isEmpty()) {
+            Map<Long, OrderStatusView> current = repository.findStatusesByIdIn(rejected).stream()
+                    .collect(Collectors.toMap(OrderStatusView::getId, Function.identity()));
+            rejected.forEach(id -> results.put(id, rejectedTransition(id, status, null, current.get(id))));
         }
+
+        if (!events.isEmpty()) {
+            if (status == OrderStatus.CANCELLED) {
+                publishOrderCancelledEvents(rows, now);
+            }
+            userOrderSummaryService.recordTransitions(status, rows);
+            orderStatsService.recordTransitions(status, rows);
+            eventPublisher.publishEvent(new OrderStatusChangedBatch(events));
+        }
+        return orderIds.stream().map(results::get).toList();
     }
 
-    private void validateOrderStatusToCancel(Order order){
-        if (order.getStatus().equals(OrderStatus.CANCELLED)) {
-            throw new InvalidOperationException("cancel order", "order is already cancelled");
+    // Stock of every cancelled order is restored like a single cancellation, reading the items of the chunk at once
+    private void publishOrderCancelledEvents(List<StatusTransitionRow> cancelled, LocalDateTime now) {
+        Map<Long, List<OrderCancelledEvent.CancelledItem>> itemsByOrder = new HashMap<>();
+        for (OrderItemRow item : repository.findItemRowsByOrderIdIn(cancelled.stream().map(StatusTransitionRow::getId).toList())) {
+            itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>())
+                    .add(new OrderCancelledEvent.CancelledItem(item.getProductId(), item.getQuantity()));
+        }
+        for (StatusTransitionRow row : cancelled) {
+            publishOrderCancelledEvent(row.getId(), row.getUserId(), itemsByOrder.getOrDefault(row.getId(), List.of()), now);
         }
+        log.info("{} orders cancelled in bulk. Events queued to restore their stock", cancelled.size());
+    }
 
-        if (order.getStatus().equals(OrderStatus.DELIVERED)) {
-            throw new InvalidOperationException("cancel order", "cannot cancel a delivered order");
+    // Only reached when the transition was not applied, so the extra read is off the happy path
+    private StatusTransitionResult explainRejectedTransition(Long orderId, OrderStatus status, Long ownerId) {
+        return rejectedTransition(orderId, status, ownerId, repository.findStatusById(orderId).orElse(null));
+    }
+
+    private StatusTransitionResult rejectedTransition(Long orderId, OrderStatus status, Long ownerId,
+                                                      OrderStatusView current) {
+        if (current == null) {
+            return new StatusTransitionResult(StatusTransitionResult.Outcome.NOT_FOUND, orderId, null, null, status, null);
         }
 
-        if(order.getStatus().equals(OrderStatus.SHIPPED)) {
-            throw new InvalidOperationException("cancel order", "cannot cancel a shipped order");
+        StatusTransitionResult.Outcome outcome;
+        if (ownerId != null && !ownerId.equals(current.getUserId())) {
+            outcome = StatusTransitionResult.Outcome.NOT_OWNER;
+        } else if (!current.getStatus().canTransitionTo(status)) {
+            outcome = StatusTransitionResult.Outcome.INVALID_TRANSITION;
+        } else {
+            // Either the expected version is outdated or the order changed while we were updating it
+            outcome = StatusTransitionResult.Outcome.STALE_VERSION;
         }
+        return new StatusTransitionResult(outcome, orderId, current.getUserId(), current.getStatus(), status, current.getVersion());
+    }
+
+    private RuntimeException cancellationRejected(StatusTransitionResult result, Long expectedVersion) {
+        return switch (result.outcome()) {
+            case APPLIED -> new IllegalStateException("Order " + result.orderId() + " was cancelled");
+            case NOT_FOUND -> new ResourceNotFoundException("Order", result.orderId());
+            case NOT_OWNER -> new InvalidOperationException("cancel order", "user can only cancel their own orders");
+            case STALE_VERSION -> expectedVersion != null
+                    ? new PreconditionFailedException("Order", result.orderId(), expectedVersion, result.version())
+                    : new StaleVersionException("Order", result.orderId(), result.version());
+            case INVALID_TRANSITION -> switch (result.fromStatus()) {
+                case CANCELLED -> new InvalidOperationException("cancel order", "order is already cancelled");
+                case DELIVERED -> new InvalidOperationException("cancel order", "cannot cancel a delivered order");
+                case SHIPPED -> new InvalidOperationException("cancel order", "cannot cancel a shipped order");
+                default -> new InvalidOperationException("cancel order", "order is " + result.fromStatus());
+            };
+        };
     }
-}
\ No newline at end of file
+}
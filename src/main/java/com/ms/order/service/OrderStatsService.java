@@ -0,0 +1,224 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.OrderStatsDTO;
+import com.ms.order.dto.OrderStatsPointDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.enums.StatsGranularity;
+import com.ms.order.exception.ValidationException;
+import com.ms.order.model.Order;
+import com.ms.order.repository.OrderStatsBucketRepository;
+import com.ms.order.repository.OrderStatsRow;
+import com.ms.order.repository.StatusTransitionRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the order_stats_bucket time series and answers analytics queries from it.
+ *
+ * Orders and cancellations are added to MINUTE buckets in the transaction that creates or cancels
+ * them, both in the bucket of the order's creation, so a bucket's cancellations are among its orders. {@link #compact} later moves minutes older than app.analytics.minute-retention into HOUR
+ * buckets and hours older than app.analytics.hour-retention into DAY buckets, so the table stays
+ * small and a query reads at most a few thousand rows whatever its range. Queries never touch the
+ * orders; a resolution is only served where buckets that fine are still kept.
+ */
+@Service
+@Slf4j
+public class OrderStatsService {
+    private static final Comparator<BucketKey> BUCKET_ORDER = Comparator.comparing(BucketKey::bucketStart)
+            .thenComparing(BucketKey::paymentMethod);
+
+    private final OrderStatsBucketRepository repository;
+
+    private final Duration minuteRetention;
+
+    private final Duration hourRetention;
+
+    private final int maxPoints;
+
+    OrderStatsService(OrderStatsBucketRepository repository,
+                      @Value("${app.analytics.minute-retention:PT6H}") Duration minuteRetention,
+                      @Value("${app.analytics.hour-retention:P7D}") Duration hourRetention,
+                      @Value("${app.analytics.max-points:5000}") int maxPoints) {
+        this.repository = repository;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * Adds newly created orders to the buckets of their creation time.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Order> orders) {
+        Map<BucketKey, Sums> buckets = new TreeMap<>(BUCKET_ORDER);
+        for (Order order : orders) {
+            BucketKey key = new BucketKey(StatsGranularity.MINUTE.truncate(order.getCreatedAt()), order.getPaymentMethod());
+            buckets.computeIfAbsent(key, k -> new Sums()).add(1, order.getTotalPrice());
+        }
+        buckets.forEach((key, sums) -> repository.add(key.bucketStart(), key.paymentMethod().name(),
+                sums.count, sums.amount, 0, BigDecimal.ZERO));
+    }
+
+    /**
+     * Adds cancellations to the buckets of the orders' creation time. Other transitions are not tracked.
+     * A bucket that was already compacted gets a MINUTE row again, which the next compaction merges;
+     * queries sum every granularity, so the cancellation is counted right away.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(OrderStatus status, Collection<? extends StatusTransitionRow> rows) {
+        if (status != OrderStatus.CANCELLED || rows.isEmpty()) {
+            return;
+        }
+
+        Map<BucketKey, Sums> cancellations = new TreeMap<>(BUCKET_ORDER);
+        for (StatusTransitionRow row : rows) {
+            BucketKey key = new BucketKey(StatsGranularity.MINUTE.truncate(row.getCreatedAt()), row.getPaymentMethod());
+            cancellations.computeIfAbsent(key, k -> new Sums()).add(1, row.getTotalPrice());
+        }
+        cancellations.forEach((key, sums) -> repository.add(key.bucketStart(), key.paymentMethod().name(),
+                0, BigDecimal.ZERO, sums.count, sums.amount));
+    }
+
+    /**
+     * Statistics of the buckets starting in [from, to). Without a granularity, the finest one kept
+     * for the range and within app.analytics.max-points is used.
+     */
+    @Transactional(readOnly = true)
+    public OrderStatsDTO findStats(LocalDateTime from, LocalDateTime to, StatsGranularity granularity) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime end = to != null ? to : now;
+        if (from == null || !from.isBefore(end)) {
+            throw new ValidationException("from", String.valueOf(from), "must be before " + end);
+        }
+
+        StatsGranularity resolution = granularity != null ? granularity : finestFor(from, end, now);
+        LocalDateTime start = resolution.truncate(from);
+        if (start.isBefore(oldestKept(resolution, now))) {
+            throw new ValidationException("granularity", resolution.name(),
+                    "only kept since " + oldestKept(resolution, now) + ", use a coarser granularity");
+        }
+        if (resolution.getUnit().between(start, end) > maxPoints) {
+            throw new ValidationException("granularity", resolution.name(),
+                    "more than " + maxPoints + " buckets in the range, use a coarser granularity");
+        }
+
+        Map<LocalDateTime, Point> points = new LinkedHashMap<>();
+        Point total = new Point();
+        for (OrderStatsRow row : repository.findSeries(resolution.field(), start, end)) {
+            points.computeIfAbsent(row.getBucketStart(), t -> new Point()).add(row);
+            total.add(row);
+        }
+
+        List<OrderStatsPointDTO> series = new ArrayList<>(points.size());
+        points.forEach((bucketStart, point) -> series.add(point.toDTO(bucketStart)));
+        return new OrderStatsDTO(resolution, start, end, series, total.toDTO(start));
+    }
+
+    /**
+     * Moves expired MINUTE buckets into HOUR buckets and expired HOUR buckets into DAY buckets.
+     * Safe to run concurrently on several instances.
+     */
+    @Transactional
+    public void compact() {
+        LocalDateTime now = LocalDateTime.now();
+        int hours = repository.compact(StatsGranularity.MINUTE.name(), StatsGranularity.HOUR.name(),
+                StatsGranularity.HOUR.field(), oldestKept(StatsGranularity.MINUTE, now));
+        int days = repository.compact(StatsGranularity.HOUR.name(), StatsGranularity.DAY.name(),
+                StatsGranularity.DAY.field(), oldestKept(StatsGranularity.HOUR, now));
+        if (hours > 0 || days > 0) {
+            log.info("Compacted order stats. Hour buckets written: {}, Day buckets written: {}", hours, days);
+        }
+    }
+
+    /**
+     * Start of the period still kept at the given granularity. Compaction works on whole target
+     * buckets, so the boundary is aligned to the next coarser granularity.
+     */
+    private LocalDateTime oldestKept(StatsGranularity granularity, LocalDateTime now) {
+        return switch (granularity) {
+            case MINUTE -> StatsGranularity.HOUR.truncate(now.minus(minuteRetention));
+            case HOUR -> StatsGranularity.DAY.truncate(now.minus(hourRetention));
+            case DAY -> LocalDateTime.MIN;
+        };
+    }
+
+    private StatsGranularity finestFor(LocalDateTime from, LocalDateTime to, LocalDateTime now) {
+        for (StatsGranularity granularity : StatsGranularity.values()) {
+            LocalDateTime start = granularity.truncate(from);
+            if (!start.isBefore(oldestKept(granularity, now)) && granularity.getUnit().between(start, to) <= maxPoints) {
+                return granularity;
+            }
+        }
+        return StatsGranularity.DAY;
+    }
+
+    private record BucketKey(LocalDateTime bucketStart, PaymentMethod paymentMethod) {
+    }
+
+    private static final class Sums {
+        private long count;
+
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        void add(long count, BigDecimal amount) {
+            this.count += count;
+            // Orders without totals (created before snapshots existed) count as zero
+            if (amount != null) {
+                this.amount = this.amount.add(amount);
+            }
+        }
+    }
+
+    private static final class Point {
+        private long orderCount;
+
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private long cancelledCount;
+
+        private BigDecimal cancelledRevenue = BigDecimal.ZERO;
+
+        private final Map<PaymentMethod, Long> ordersByPaymentMethod = new EnumMap<>(PaymentMethod.class);
+
+        private final Map<PaymentMethod, BigDecimal> revenueByPaymentMethod = new EnumMap<>(PaymentMethod.class);
+
+        void add(OrderStatsRow row) {
+            PaymentMethod method = PaymentMethod.valueOf(row.getPaymentMethod());
+            orderCount += row.getOrderCount();
+            revenue = revenue.add(row.getRevenue());
+            cancelledCount += row.getCancelledCount();
+            cancelledRevenue = cancelledRevenue.add(row.getCancelledRevenue());
+            ordersByPaymentMethod.merge(method, row.getOrderCount(), Long::sum);
+            revenueByPaymentMethod.merge(method, row.getRevenue(), BigDecimal::add);
+        }
+
+        OrderStatsPointDTO toDTO(LocalDateTime bucketStart) {
+            return new OrderStatsPointDTO(
+                    bucketStart,
+                    orderCount,
+                    revenue,
+                    cancelledCount,
+                    cancelledRevenue,
+                    revenue.subtract(cancelledRevenue),
+                    orderCount == 0 ? 0 : (double) cancelledCount / orderCount,
+                    ordersByPaymentMethod,
+                    revenueByPaymentMethod);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.StatusTransitionRequest;
+import com.ms.order.dto.StatusTransitionResult;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies status changes for many orders at once, as pushed by fulfillment systems.
+ *
+ * Requests are grouped by target status and applied with one set-based UPDATE per chunk of
+ * app.order.bulk.chunk-size orders, each chunk in its own transaction so row locks are held briefly.
+ * Target statuses are applied in lifecycle order, so an order moved to PROCESSING and SHIPPED in the
+ * same request ends up SHIPPED. Every request item gets its own result.
+ */
+@Service
+@Slf4j
+public class OrderStatusBulkService {
+    private final OrderService orderService;
+
+    private final int chunkSize;
+
+    private final int maxTransitions;
+
+    OrderStatusBulkService(OrderService orderService,
+                           @Value("${app.order.bulk.chunk-size:500}") int chunkSize,
+                           @Value("${app.order.bulk.max-transitions:10000}") int maxTransitions) {
+        this.orderService = orderService;
+        this.chunkSize = chunkSize;
+        this.maxTransitions = maxTransitions;
+    }
+
+    public List<StatusTransitionResult> transition(List<StatusTransitionRequest> requests) {
+        validate(requests);
+        long start = System.nanoTime();
+
+        Map<OrderStatus, Set<Long>> idsByStatus = new EnumMap<>(OrderStatus.class);
+        for (StatusTransitionRequest request : requests) {
+            idsByStatus.computeIfAbsent(request.status(), status -> new LinkedHashSet<>()).add(request.orderId());
+        }
+
+        Map<StatusTransitionRequest, StatusTransitionResult> results = new HashMap<>();
+        idsByStatus.forEach((status, ids) -> {
+            for (List<Long> chunk : chunk(ids)) {
+                List<StatusTransitionResult> chunkResults = orderService.transitionStatuses(status, chunk);
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.put(new StatusTransitionRequest(chunk.get(i), status), chunkResults.get(i));
+                }
+            }
+        });
+
+        List<StatusTransitionResult> ordered = requests.stream().map(results::get).toList();
+        long applied = ordered.stream().filter(StatusTransitionResult::applied).count();
+        log.info("Bulk status transition finished. Requested: {}, Applied: {}, Rejected: {}, Took: {} ms",
+                requests.size(), applied, requests.size() - applied, (System.nanoTime() - start) / 1_000_000);
+        return ordered;
+    }
+
+    private void validate(List<StatusTransitionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException("transitions", "[]", "at least one transition is required");
+        }
+        if (requests.size() > maxTransitions) {
+            throw new ValidationException("transitions", String.valueOf(requests.size()),
+                    "at most " + maxTransitions + " transitions per request");
+        }
+        for (StatusTransitionRequest request : requests) {
+            if (request == null || request.orderId() == null || request.status() == null) {
+                throw new ValidationException("transition", String.valueOf(request), "orderId and status are required");
+            }
+        }
+    }
+
+    private List<List<Long>> chunk(Set<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>(Math.min(chunkSize, ids.size()));
+        for (Long id : ids) {
+            current.add(id);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.OrderStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes order status changes to Server-Sent Events subscribers, per order or per user.
+ *
+ * Emitters use async servlet support, so an idle subscriber holds a connection but no thread.
+ * Changes arrive through the order.status-changed broadcast, which every replica receives,
+ * so a subscriber is notified whichever instance made the change. A periodic heartbeat
+ * keeps proxies from closing idle streams and detects clients that went away.
+ *
+ * Sending blocks while a client is not reading, so events are only queued per subscriber by the
+ * RabbitMQ listener and the heartbeat, and written by a small dedicated pool. A subscriber with
+ * more than app.order.stream.max-pending unsent events is closed, the client reconnects and
+ * reads the current status again.
+ */
+@Service
+@Slf4j
+public class OrderStatusStreamService {
+    private static final String EVENT_NAME = "order-status";
+
+    private static final Supplier<SseEventBuilder> PING = () -> SseEmitter.event().comment("ping");
+
+    private final Map<Long, Set<Subscriber>> orderSubscribers = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final long timeoutMs;
+
+    private final int maxPending;
+
+    private final ExecutorService sendExecutor;
+
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("order-stream-heartbeat").daemon().factory());
+
+    private final Counter dropped;
+
+    OrderStatusStreamService(MeterRegistry meterRegistry,
+                             @Value("${app.order.stream.timeout:PT30M}") Duration timeout,
+                             @Value("${app.order.stream.heartbeat-ms:15000}") long heartbeatMs,
+                             @Value("${app.order.stream.send-threads:4}") int sendThreads,
+                             @Value("${app.order.stream.send-queue:10000}") int sendQueue,
+                             @Value("${app.order.stream.max-pending:100}") int maxPending) {
+        this.timeoutMs = timeout.toMillis();
+        this.maxPending = maxPending;
+        // Tasks are per subscriber with events to send, not per event
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueue), Thread.ofPlatform().name("order-stream-send-", 0).daemon().factory());
+        this.dropped = Counter.builder("order.stream.dropped")
+                .description("Status streams closed because the client fell behind")
+                .register(meterRegistry);
+        Gauge.builder("order.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open order status streams")
+                .register(meterRegistry);
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes to one order. The current status is sent first and read only after the
+     * subscription is registered, so no change can fall between the two.
+     */
+    public SseEmitter subscribeToOrder(Long orderId, Supplier<OrderStatusChangedEvent> currentStatus) {
+        Subscriber subscriber = register(orderSubscribers, orderId);
+        try {
+            subscriber.enqueue(statusEvent(currentStatus.get()));
+        } catch (RuntimeException e) {
+            unregister(orderSubscribers, orderId, subscriber);
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    public SseEmitter subscribeToUser(Long userId) {
+        return register(userSubscribers, userId).emitter;
+    }
+
+    public void publish(OrderStatusChangedEvent event) {
+        enqueueAll(orderSubscribers.get(event.orderId()), statusEvent(event));
+        enqueueAll(userSubscribers.get(event.userId()), statusEvent(event));
+    }
+
+    void heartbeat() {
+        orderSubscribers.values().forEach(subscribers -> enqueueAll(subscribers, PING));
+        userSubscribers.values().forEach(subscribers -> enqueueAll(subscribers, PING));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatScheduler.shutdown();
+        sendExecutor.shutdown();
+    }
+
+    private Subscriber register(Map<Long, Set<Subscriber>> subscriptions, Long key) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs));
+        subscriptions.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscribers.incrementAndGet();
+
+        Runnable cleanup = () -> unregister(subscriptions, key, subscriber);
+        subscriber.emitter.onCompletion(cleanup);
+        subscriber.emitter.onTimeout(cleanup);
+        subscriber.emitter.onError(e -> cleanup.run());
+        return subscriber;
+    }
+
+    private void unregister(Map<Long, Set<Subscriber>> subscriptions, Long key, Subscriber subscriber) {
+        subscriptions.computeIfPresent(key, (k, subscribers) -> {
+            if (subscribers.remove(subscriber)) {
+                this.subscribers.decrementAndGet();
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static void enqueueAll(Set<Subscriber> subscribers, Supplier<SseEventBuilder> event) {
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.enqueue(event));
+        }
+    }
+
+    // A builder is consumed by the send, so each subscriber builds its own
+    private static Supplier<SseEventBuilder> statusEvent(OrderStatusChangedEvent event) {
+        return () -> SseEmitter.event().name(EVENT_NAME).data(event);
+    }
+
+    /**
+     * Events of one emitter, sent in order by at most one pool thread at a time.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+
+        private final Queue<Supplier<SseEventBuilder>> events = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Supplier<SseEventBuilder> event) {
+            if (pending.get() >= maxPending) {
+                // The client is not reading, completing the emitter runs the cleanup
+                dropped.increment();
+                emitter.complete();
+                return;
+            }
+            events.add(event);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    dropped.increment();
+                    emitter.complete();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    emitter.send(events.remove().get());
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away, completing the emitter runs the cleanup
+                    emitter.completeWithError(e);
+                    return;
+                }
+            } while (pending.decrementAndGet() > 0);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ms.order.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms.order.dto.InternalProductDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of products keyed by ID, in front of ProductService.
+ *
+ * Only the IDs missing from the cache are loaded, and concurrent misses for the same ID
+ * wait on the same in-flight load instead of triggering a new remote call.
+ * Entries expire after the configured TTL and are invalidated earlier by product change events.
+ * Hit, miss and eviction counts are exposed as "cache.*" metrics tagged cache=productCatalog.
+ *
+ * Every loaded product is also kept as last-known data for app.product.cache.stale-ttl, unaffected by
+ * expiry and invalidation, so reads can still be answered while ProductService is unavailable.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache implements MeterBinder {
+    private static final String CACHE_NAME = "productCatalog";
+
+    private final AsyncCache<Long, InternalProductDTO> cache;
+
+    private final Cache<Long, InternalProductDTO> lastKnown;
+
+    ProductCatalogCache(@Value("${app.product.cache.max-size:10000}") long maxSize,
+                        @Value("${app.product.cache.ttl:PT5M}") Duration ttl,
+                        @Value("${app.product.cache.stale-ttl:PT24H}") Duration staleTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                // Loads run on the calling thread, waiting callers share its future
+                .executor(Runnable::run)
+                .recordStats()
+                .buildAsync();
+        this.lastKnown = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleTtl)
+                .build();
+    }
+
+    /**
+     * Returns the cached products for the given IDs, loading only the missing ones.
+     * Products the loader does not return are absent from the result and are not cached.
+     */
+    public Map<Long, InternalProductDTO> getAll(Collection<Long> productIds,
+                                                Function<Set<? extends Long>, Map<Long, InternalProductDTO>> loader) {
+        try {
+            return cache.getAll(productIds, ids -> {
+                Map<Long, InternalProductDTO> loaded = loader.apply(ids);
+                lastKnown.putAll(loaded);
+                return loaded;
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Products currently cached, without loading anything.
+     */
+    public Map<Long, InternalProductDTO> getPresent(Collection<Long> productIds) {
+        return cache.synchronous().getAllPresent(productIds);
+    }
+
+    /**
+     * Last loaded version of the given products, possibly expired or invalidated since.
+     */
+    public Map<Long, InternalProductDTO> getLastKnown(Collection<Long> productIds) {
+        return lastKnown.getAllPresent(productIds);
+    }
+
+    public void invalidate(Long productId) {
+        cache.synchronous().invalidate(productId);
+        log.debug("Product {} evicted from catalog cache", productId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache.synchronous(), CACHE_NAME, Tags.empty()).bindTo(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.InternalProductDTO;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Products resolved for display. Stale products are last-known data, or unknown, because
+ * ProductService could not be reached; a product neither found nor stale does not exist.
+ */
+record ProductLookup(Map<Long, InternalProductDTO> products, Set<Long> staleProductIds) {
+    static final ProductLookup EMPTY = new ProductLookup(Map.of(), Set.of());
+
+    InternalProductDTO get(Long productId) {
+        return products.get(productId);
+    }
+
+    boolean isStale(Long productId) {
+        return staleProductIds.contains(productId);
+    }
+}
@@ -0,0 +1,194 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.InternalProductDTO;
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces product lookups of concurrent callers into merged ProductService calls.
+ *
+ * IDs requested within app.product.lookup.batch.window are sent together, or as soon as
+ * app.product.lookup.max-ids-per-request IDs are pending, and each caller gets back only its own products.
+ * An ID requested by several callers is sent once. At most app.product.lookup.batch.max-in-flight merged
+ * calls run at a time; while that limit is reached, new IDs keep accumulating into the next batch.
+ *
+ * A batch runs on a virtual thread, so a page whose lookup spans several batches waits only for the slowest
+ * of them. It carries the propagated context of the caller that opened it, the current observation among
+ * others, so the merged call shows up in that request's trace. A batch serves many callers, so no caller's security context
+ * is ever propagated to it and ProductService is called with the service credentials only.
+ * Callers that must not share a call with others should use {@link ResilientProductClient} directly.
+ */
+@Component
+@Slf4j
+class ProductLookupBatcher {
+    // Everything a caller propagates but its authentication, which is cleared on the batch thread
+    private static final ContextSnapshotFactory CALLER_CONTEXT = ContextSnapshotFactory.builder()
+            .captureKeyPredicate(key -> !SecurityContext.class.getName().equals(key))
+            .clearMissing(true)
+            .build();
+
+    private final ResilientProductClient productClient;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final Semaphore inFlight;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("product-lookup-batcher").daemon().factory());
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Guarded by this
+    private Map<Long, CompletableFuture<InternalProductDTO>> pending = new LinkedHashMap<>();
+
+    // Guarded by this, context of the caller that opened the pending batch
+    private ContextSnapshot pendingContext;
+
+    // Guarded by this
+    private boolean flushScheduled;
+
+    ProductLookupBatcher(ResilientProductClient productClient,
+                         @Value("${app.product.lookup.batch.window:PT0.002S}") Duration window,
+                         @Value("${app.product.lookup.max-ids-per-request:100}") int maxBatchSize,
+                         @Value("${app.product.lookup.batch.max-in-flight:16}") int maxInFlight) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("app.product.lookup.max-ids-per-request must be at least 1");
+        }
+        this.productClient = productClient;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Blocks until the given products are loaded. Products ProductService does not know are absent.
+     */
+    Map<Long, InternalProductDTO> findProductsByIds(Collection<? extends Long> productIds) {
+        Map<Long, CompletableFuture<InternalProductDTO>> futures = new HashMap<>(productIds.size() * 2);
+        boolean flushNow;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                pendingContext = CALLER_CONTEXT.captureAll();
+            }
+            for (Long productId : productIds) {
+                futures.put(productId, pending.computeIfAbsent(productId, id -> new CompletableFuture<>()));
+            }
+            flushNow = pending.size() >= maxBatchSize;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+
+        Map<Long, InternalProductDTO> products = new HashMap<>(futures.size() * 2);
+        try {
+            for (Map.Entry<Long, CompletableFuture<InternalProductDTO>> entry : futures.entrySet()) {
+                InternalProductDTO product = entry.getValue().join();
+                if (product != null) {
+                    products.put(entry.getKey(), product);
+                }
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return products;
+    }
+
+    /**
+     * Sends pending IDs in batches of at most maxBatchSize while in-flight permits are available.
+     * Whatever is left waits for the next window.
+     */
+    private void flush() {
+        while (true) {
+            Map<Long, CompletableFuture<InternalProductDTO>> batch;
+            ContextSnapshot context;
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                if (!inFlight.tryAcquire()) {
+                    flushScheduled = true;
+                    scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                batch = takeBatch();
+                context = pendingContext;
+                if (pending.isEmpty()) {
+                    pendingContext = null;
+                }
+            }
+            executor.execute(context.wrap(() -> send(batch)));
+        }
+    }
+
+    private Map<Long, CompletableFuture<InternalProductDTO>> takeBatch() {
+        if (pending.size() <= maxBatchSize) {
+            Map<Long, CompletableFuture<InternalProductDTO>> batch = pending;
+            pending = new LinkedHashMap<>();
+            return batch;
+        }
+
+        Map<Long, CompletableFuture<InternalProductDTO>> batch = new HashMap<>(maxBatchSize * 2);
+        Iterator<Map.Entry<Long, CompletableFuture<InternalProductDTO>>> iterator = pending.entrySet().iterator();
+        while (batch.size() < maxBatchSize) {
+            Map.Entry<Long, CompletableFuture<InternalProductDTO>> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void send(Map<Long, CompletableFuture<InternalProductDTO>> batch) {
+        try {
+            List<InternalProductDTO> products = productClient.findProductsByIds(batch.keySet());
+            for (InternalProductDTO product : products) {
+                CompletableFuture<InternalProductDTO> future = batch.get(product.id());
+                if (future != null) {
+                    future.complete(product);
+                }
+            }
+            // Unknown products
+            batch.values().forEach(future -> future.complete(null));
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            inFlight.release();
+        }
+        log.debug("Merged product lookup of {} IDs", batch.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+}
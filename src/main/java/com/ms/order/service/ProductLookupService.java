@@ -0,0 +1,71 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.InternalProductDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves products for a whole result set at once.
+ * Products are served from the {@link ProductCatalogCache} and only the missing IDs are sent to
+ * ProductService, merged with those of concurrent callers by the {@link ProductLookupBatcher}.
+ *
+ * Calls go through the {@link ResilientProductClient}. Writes need current data and fail when ProductService
+ * is unavailable, reads can use {@link #findProductsForDisplay} to fall back to last-known products.
+ */
+@Service
+@Slf4j
+public class ProductLookupService {
+    private final ProductLookupBatcher productLookupBatcher;
+
+    private final ProductCatalogCache productCatalogCache;
+
+    ProductLookupService(ProductLookupBatcher productLookupBatcher, ProductCatalogCache productCatalogCache) {
+        this.productLookupBatcher = productLookupBatcher;
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    public Map<Long, InternalProductDTO> findProductsByIds(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, InternalProductDTO> products = productCatalogCache.getAll(productIds, productLookupBatcher::findProductsByIds);
+
+        if (products.size() < productIds.size()) {
+            log.warn("Product lookup returned {} of {} requested products", products.size(), productIds.size());
+        }
+        return products;
+    }
+
+    /**
+     * Same as {@link #findProductsByIds}, but never fails because of ProductService: while it is unavailable
+     * the products are served from the cache or as last known, and marked stale when not current.
+     */
+    ProductLookup findProductsForDisplay(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return ProductLookup.EMPTY;
+        }
+
+        try {
+            return new ProductLookup(findProductsByIds(productIds), Set.of());
+        } catch (RuntimeException e) {
+            log.warn("Product lookup failed, serving last known data for {} products: {}", productIds.size(), e.toString());
+        }
+
+        Map<Long, InternalProductDTO> products = new HashMap<>(productCatalogCache.getPresent(productIds));
+        Set<Long> staleProductIds = new HashSet<>();
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                staleProductIds.add(productId);
+            }
+        }
+        products.putAll(productCatalogCache.getLastKnown(staleProductIds));
+        return new ProductLookup(products, staleProductIds);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ms.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * In-memory set of recently checked out cart IDs, consulted before the database so that
+ * redeliveries of a checkout just processed are dropped without a query.
+ *
+ * Only carts whose order is committed are added, so the filter never hides a checkout
+ * that was rolled back. A miss says nothing: the database (and its unique index) stays authoritative.
+ */
+@Component
+class RecentCheckoutFilter {
+    private final Cache<Long, Boolean> processedCarts;
+
+    RecentCheckoutFilter(@Value("${app.checkout.dedup.max-size:100000}") long maxSize,
+                         @Value("${app.checkout.dedup.ttl:PT1H}") Duration ttl) {
+        this.processedCarts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    boolean contains(Long cartId) {
+        return processedCarts.getIfPresent(cartId) != null;
+    }
+
+    void add(Collection<Long> cartIds) {
+        cartIds.forEach(cartId -> processedCarts.put(cartId, Boolean.TRUE));
+    }
+
+    void addAfterCommit(Collection<Long> cartIds) {
+        if (cartIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(cartIds);
+            return;
+        }
+
+        List<Long> committed = List.copyOf(cartIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(committed);
+            }
+        });
+    }
+}
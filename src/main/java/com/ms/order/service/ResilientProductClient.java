@@ -0,0 +1,159 @@
+package com.ms.order.service;
+
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.InternalProductDTO;
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@link ProductService} guarded so that a slow or failing ProductService cannot take this service down.
+ *
+ * Connect and read timeouts come from the Feign client configuration. Concurrent calls are capped by a
+ * bulkhead that rejects quickly instead of queueing request threads, and a circuit breaker stops calling
+ * while the failure or slow call rate is too high. Lookups are idempotent, so a call that has not answered
+ * within app.product.client.hedge-delay is hedged with a second one and the first answer wins.
+ * State and counts are exposed as "resilience4j.*" metrics tagged name=product.
+ */
+@Component
+@Slf4j
+public class ResilientProductClient implements MeterBinder {
+    private static final String NAME = "product";
+
+    private final ProductService productService;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    private final Duration hedgeDelay;
+
+    // Attempts run with the calling thread's context: the request's, or for merged lookups the batch's,
+    // which keeps the trace but carries no authentication (see ProductLookupBatcher)
+    private final ExecutorService executor = ContextExecutorService.wrap(
+            Executors.newVirtualThreadPerTaskExecutor(), ContextSnapshotFactory.builder().build());
+
+    ResilientProductClient(ProductService productService,
+                           @Value("${app.product.client.max-concurrent-calls:50}") int maxConcurrentCalls,
+                           @Value("${app.product.client.max-wait:PT0.05S}") Duration maxWait,
+                           @Value("${app.product.client.failure-rate-threshold:50}") float failureRateThreshold,
+                           @Value("${app.product.client.slow-call-duration:PT1S}") Duration slowCallDuration,
+                           @Value("${app.product.client.open-duration:PT30S}") Duration openDuration,
+                           @Value("${app.product.client.hedge-delay:PT0.3S}") Duration hedgeDelay) {
+        this.productService = productService;
+        this.bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(openDuration)
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(10)
+                // Our own rejections and 4xx answers say nothing about ProductService health
+                .ignoreExceptions(BulkheadFullException.class, FeignException.FeignClientException.class)
+                .build());
+        this.bulkhead = bulkheadRegistry.bulkhead(NAME);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(NAME);
+        this.hedgeDelay = hedgeDelay;
+    }
+
+    /**
+     * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException while the circuit is open
+     * @throws BulkheadFullException when too many calls are already in flight
+     */
+    public List<InternalProductDTO> findProductsByIds(Set<Long> productIds) {
+        Supplier<List<InternalProductDTO>> call = Bulkhead.decorateSupplier(bulkhead,
+                () -> productService.findProductsByIds(productIds));
+        return circuitBreaker.executeSupplier(() -> hedged(call));
+    }
+
+    private List<InternalProductDTO> hedged(Supplier<List<InternalProductDTO>> call) {
+        if (hedgeDelay.isZero()) {
+            return call.get();
+        }
+
+        CompletableFuture<List<InternalProductDTO>> primary = CompletableFuture.supplyAsync(call, executor);
+        try {
+            return primary.get(hedgeDelay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Product lookup slower than {}, hedging", hedgeDelay);
+            // Both attempts are bounded by the Feign read timeout
+            return unwrap(() -> firstSuccessful(primary, CompletableFuture.supplyAsync(call, executor)).join());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ProductService", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T> T unwrap(Supplier<T> supplier) {
+        try {
+            return supplier.get();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(registry);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.UserOrderSummaryDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.model.Order;
+import com.ms.order.model.UserOrderSummary;
+import com.ms.order.repository.StatusTransitionRow;
+import com.ms.order.repository.UserOrderSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the user_order_summary projection and serves it.
+ *
+ * The summary is updated with increments in the transaction that creates orders or changes their
+ * status, so it commits or rolls back with them. Users are updated in ID order, so transactions
+ * touching several summaries cannot deadlock each other. {@link #rebuild} recomputes summaries
+ * from the orders and is used for repairs.
+ */
+@Service
+@Slf4j
+public class UserOrderSummaryService {
+    private final UserOrderSummaryRepository repository;
+
+    UserOrderSummaryService(UserOrderSummaryRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Served with a single primary key lookup. A user without orders gets an empty summary.
+     */
+    public UserOrderSummaryDTO findByUserId(Long userId) {
+        return repository.findById(userId)
+                .map(UserOrderSummaryService::toDTO)
+                .orElseGet(() -> new UserOrderSummaryDTO(userId, 0, BigDecimal.ZERO, countsByStatus(0, 0, 0, 0, 0), null));
+    }
+
+    /**
+     * Adds newly created, still PENDING orders to their users' summaries.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Order> orders) {
+        Map<Long, List<Order>> ordersByUser = orders.stream()
+                .collect(Collectors.groupingBy(Order::getUserId, TreeMap::new, Collectors.toList()));
+        LocalDateTime now = LocalDateTime.now();
+        ordersByUser.forEach((userId, userOrders) -> repository.addOrders(userId,
+                userOrders.size(),
+                userOrders.stream().map(UserOrderSummaryService::priceOf).reduce(BigDecimal.ZERO, BigDecimal::add),
+                userOrders.stream().map(Order::getCreatedAt).filter(Objects::nonNull).max(Comparator.naturalOrder()).orElse(now),
+                now));
+    }
+
+    /**
+     * Moves transitioned orders from their previous status count to the new one. Cancelled orders
+     * stop counting in total spent.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransitions(OrderStatus status, Collection<? extends StatusTransitionRow> rows) {
+        Map<Long, Delta> deltas = new TreeMap<>();
+        for (StatusTransitionRow row : rows) {
+            Delta delta = deltas.computeIfAbsent(row.getUserId(), userId -> new Delta());
+            delta.add(OrderStatus.valueOf(row.getPreviousStatus()), -1);
+            delta.add(status, 1);
+            if (status == OrderStatus.CANCELLED && row.getTotalPrice() != null) {
+                delta.spent = delta.spent.subtract(row.getTotalPrice());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        deltas.forEach((userId, delta) -> {
+            int updated = repository.applyDelta(userId,
+                    delta.get(OrderStatus.PENDING),
+                    delta.get(OrderStatus.PROCESSING),
+                    delta.get(OrderStatus.SHIPPED),
+                    delta.get(OrderStatus.DELIVERED),
+                    delta.get(OrderStatus.CANCELLED),
+                    delta.spent,
+                    now);
+            if (updated == 0) {
+                // Summary missing, the orders already hold this transition so it is rebuilt from them
+                log.warn("Order summary of user {} not found, rebuilding it", userId);
+                rebuild(List.of(userId));
+            }
+        });
+    }
+
+    /**
+     * Recomputes the summaries of the given users from their orders. The summaries are locked before
+     * the orders are read, so a concurrent change is either counted by the rebuild or applied on top of it.
+     * Users without a summary get an empty one first: otherwise there is nothing to lock, and the first order
+     * of such a user committed during the rebuild would be overwritten by it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void rebuild(Collection<Long> userIds) {
+        if (!userIds.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            repository.insertMissing(userIds, now);
+            repository.lockByUserIdIn(userIds);
+            repository.rebuild(userIds, now);
+        }
+    }
+
+    private static BigDecimal priceOf(Order order) {
+        return order.getTotalPrice() != null ? order.getTotalPrice() : BigDecimal.ZERO;
+    }
+
+    private static UserOrderSummaryDTO toDTO(UserOrderSummary summary) {
+        return new UserOrderSummaryDTO(
+                summary.getUserId(),
+                summary.getOrderCount(),
+                summary.getTotalSpent(),
+                countsByStatus(summary.getPendingCount(), summary.getProcessingCount(), summary.getShippedCount(),
+                        summary.getDeliveredCount(), summary.getCancelledCount()),
+                summary.getLastOrderAt());
+    }
+
+    private static Map<OrderStatus, Long> countsByStatus(long pending, long processing, long shipped,
+                                                         long delivered, long cancelled) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        counts.put(OrderStatus.PENDING, pending);
+        counts.put(OrderStatus.PROCESSING, processing);
+        counts.put(OrderStatus.SHIPPED, shipped);
+        counts.put(OrderStatus.DELIVERED, delivered);
+        counts.put(OrderStatus.CANCELLED, cancelled);
+        return counts;
+    }
+
+    private static final class Delta {
+        private final long[] counts = new long[OrderStatus.values().length];
+
+        private BigDecimal spent = BigDecimal.ZERO;
+
+        void add(OrderStatus status, long count) {
+            counts[status.ordinal()] += count;
+        }
+
+        long get(OrderStatus status) {
+            return counts[status.ordinal()];
+        }
+    }
+}
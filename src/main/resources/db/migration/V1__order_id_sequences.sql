@@ -0,0 +1,27 @@
+-- Moves Orders and order_items ID generation from IDENTITY columns to pooled sequences,
+-- so Hibernate can batch inserts.
+--
+-- The pooled optimizer hands out the block (value - increment, value], so each sequence
+-- starts one full increment above the current max id: existing rows never collide.
+-- On a fresh database the tables do not exist yet (Hibernate creates them) and the
+-- first block starts at 1.
+DO $$
+DECLARE
+    max_order_id BIGINT := 0;
+    max_item_id BIGINT := 0;
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        SELECT COALESCE(MAX(id), 0) INTO max_order_id FROM orders;
+        ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+    END IF;
+
+    IF to_regclass('order_items') IS NOT NULL THEN
+        SELECT COALESCE(MAX(id), 0) INTO max_item_id FROM order_items;
+        ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+    END IF;
+
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH %s INCREMENT BY %s',
+                   max_order_id + ${id_allocation_size}, ${id_allocation_size});
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH %s INCREMENT BY %s',
+                   max_item_id + ${id_allocation_size}, ${id_allocation_size});
+END $$;
@@ -0,0 +1,15 @@
+-- Transactional outbox: events are written with the order change and relayed to RabbitMQ afterwards.
+CREATE SEQUENCE IF NOT EXISTS outbox_seq START WITH 1 INCREMENT BY ${id_allocation_size};
+
+CREATE TABLE IF NOT EXISTS outbox (
+    id          BIGINT       PRIMARY KEY,
+    routing_key VARCHAR(255) NOT NULL,
+    event_type  VARCHAR(255),
+    payload     TEXT         NOT NULL,
+    attempts    INTEGER      NOT NULL DEFAULT 0,
+    created_at  TIMESTAMP    NOT NULL,
+    sent_at     TIMESTAMP
+);
+
+-- Only unsent rows are polled
+CREATE INDEX IF NOT EXISTS idx_outbox_unsent ON outbox (id) WHERE sent_at IS NULL;
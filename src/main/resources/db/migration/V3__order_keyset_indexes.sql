@@ -0,0 +1,14 @@
+-- Indexes for the keyset listings (created_at desc, id desc) and for loading the items of a page.
+-- On a fresh database the tables do not exist yet and Hibernate creates the same indexes
+-- from the entity mappings.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_orders_created_id ON orders (created_at DESC, id DESC);
+        CREATE INDEX IF NOT EXISTS idx_orders_user_created_id ON orders (user_id, created_at DESC, id DESC);
+    END IF;
+
+    IF to_regclass('order_items') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+    END IF;
+END $$;
@@ -0,0 +1,7 @@
+-- Optimistic lock / ETag column. Existing orders start at version 0.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+    END IF;
+END $$;
@@ -0,0 +1,15 @@
+-- Name/price snapshot of order items and the order totals derived from it. Orders created before these
+-- columns existed keep NULLs until the snapshot backfill job fills them. V6 and V7 read orders.total_price,
+-- so the columns are created here rather than left to Hibernate, which only runs after the migrations.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        ALTER TABLE orders ADD COLUMN IF NOT EXISTS total_quantity INTEGER;
+        ALTER TABLE orders ADD COLUMN IF NOT EXISTS total_price NUMERIC(19, 2);
+    END IF;
+
+    IF to_regclass('order_items') IS NOT NULL THEN
+        ALTER TABLE order_items ADD COLUMN IF NOT EXISTS product_name VARCHAR(255);
+        ALTER TABLE order_items ADD COLUMN IF NOT EXISTS unit_price NUMERIC(19, 2);
+    END IF;
+END $$;
@@ -0,0 +1,12 @@
+-- One order per checked out cart. Orders created before this column existed keep a NULL cart_id,
+-- which the unique constraint allows any number of times.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        ALTER TABLE orders ADD COLUMN IF NOT EXISTS cart_id BIGINT;
+
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_orders_cart_id') THEN
+            ALTER TABLE orders ADD CONSTRAINT uk_orders_cart_id UNIQUE (cart_id);
+        END IF;
+    END IF;
+END $$;
@@ -0,0 +1,35 @@
+-- Per-user order aggregates, maintained with the orders from now on and filled here from the existing ones.
+-- On a fresh database the table is created by Hibernate with the orders table.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        CREATE TABLE IF NOT EXISTS user_order_summary (
+            user_id          BIGINT PRIMARY KEY,
+            order_count      BIGINT NOT NULL,
+            total_spent      NUMERIC(19, 2) NOT NULL,
+            pending_count    BIGINT NOT NULL,
+            processing_count BIGINT NOT NULL,
+            shipped_count    BIGINT NOT NULL,
+            delivered_count  BIGINT NOT NULL,
+            cancelled_count  BIGINT NOT NULL,
+            last_order_at    TIMESTAMP(6),
+            updated_at       TIMESTAMP(6) NOT NULL
+        );
+
+        INSERT INTO user_order_summary (user_id, order_count, total_spent, pending_count, processing_count,
+                                        shipped_count, delivered_count, cancelled_count, last_order_at, updated_at)
+        SELECT user_id,
+               count(*),
+               coalesce(sum(total_price) FILTER (WHERE status <> 'CANCELLED'), 0),
+               count(*) FILTER (WHERE status = 'PENDING'),
+               count(*) FILTER (WHERE status = 'PROCESSING'),
+               count(*) FILTER (WHERE status = 'SHIPPED'),
+               count(*) FILTER (WHERE status = 'DELIVERED'),
+               count(*) FILTER (WHERE status = 'CANCELLED'),
+               max(created_at),
+               now()
+        FROM orders
+        GROUP BY user_id
+        ON CONFLICT (user_id) DO NOTHING;
+    END IF;
+END $$;
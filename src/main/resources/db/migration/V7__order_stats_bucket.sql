@@ -0,0 +1,43 @@
+-- Order statistics time buckets, maintained with the orders from now on and filled here from the existing ones.
+-- Past orders go straight to the granularity the compaction would have left them in with the default
+-- retentions (minutes for 6 hours, hours for 7 days). Cancellations are dated by the last update of the order,
+-- which for a cancelled order is the cancellation. On a fresh database the table is created by Hibernate.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL THEN
+        CREATE TABLE IF NOT EXISTS order_stats_bucket (
+            granularity       VARCHAR(8) NOT NULL,
+            bucket_start      TIMESTAMP(6) NOT NULL,
+            payment_method    VARCHAR(255) NOT NULL,
+            order_count       BIGINT NOT NULL,
+            revenue           NUMERIC(19, 2) NOT NULL,
+            cancelled_count   BIGINT NOT NULL,
+            cancelled_revenue NUMERIC(19, 2) NOT NULL,
+            PRIMARY KEY (granularity, bucket_start, payment_method)
+        );
+        CREATE INDEX IF NOT EXISTS idx_order_stats_bucket_start ON order_stats_bucket (bucket_start);
+
+        INSERT INTO order_stats_bucket (granularity, bucket_start, payment_method,
+                                        order_count, revenue, cancelled_count, cancelled_revenue)
+        SELECT g.granularity, date_trunc(lower(g.granularity), e.at), e.payment_method,
+               sum(e.orders), sum(e.revenue), sum(e.cancelled), sum(e.cancelled_revenue)
+        FROM (
+            SELECT created_at AS at, payment_method, 1 AS orders, coalesce(total_price, 0) AS revenue,
+                   0 AS cancelled, 0 AS cancelled_revenue
+            FROM orders
+            UNION ALL
+            SELECT updated_at, payment_method, 0, 0, 1, coalesce(total_price, 0)
+            FROM orders
+            WHERE status = 'CANCELLED' AND updated_at IS NOT NULL
+        ) e
+        CROSS JOIN LATERAL (
+            SELECT CASE
+                       WHEN e.at < date_trunc('day', now() - INTERVAL '7 days') THEN 'DAY'
+                       WHEN e.at < date_trunc('hour', now() - INTERVAL '6 hours') THEN 'HOUR'
+                       ELSE 'MINUTE'
+                   END AS granularity
+        ) g
+        GROUP BY 1, 2, 3
+        ON CONFLICT (granularity, bucket_start, payment_method) DO NOTHING;
+    END IF;
+END $$;
@@ -0,0 +1,8 @@
+-- Outbox relay claims and poison events. An event is claimed for a lease, published and confirmed outside the
+-- claiming transaction, and parked once it has failed app.outbox.relay.max-attempts times, so it stops being polled.
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS parked_at TIMESTAMP;
+
+-- Only pending rows are polled
+DROP INDEX IF EXISTS idx_outbox_unsent;
+CREATE INDEX IF NOT EXISTS idx_outbox_pending ON outbox (id) WHERE sent_at IS NULL AND parked_at IS NULL;
@@ -0,0 +1,22 @@
+-- Cancellations are now counted in the bucket of the order's creation, so a bucket's cancellation rate is the share
+-- of its own orders that were cancelled. The ones V7 and the application dated by the cancellation are cleared and
+-- counted again from the orders, as MINUTE rows: queries sum every granularity, and the next compaction merges the
+-- rows whose minutes are no longer kept into the HOUR and DAY buckets.
+DO $$
+BEGIN
+    IF to_regclass('orders') IS NOT NULL AND to_regclass('order_stats_bucket') IS NOT NULL THEN
+        UPDATE order_stats_bucket SET cancelled_count = 0, cancelled_revenue = 0
+        WHERE cancelled_count <> 0 OR cancelled_revenue <> 0;
+
+        INSERT INTO order_stats_bucket AS b (granularity, bucket_start, payment_method,
+                                             order_count, revenue, cancelled_count, cancelled_revenue)
+        SELECT 'MINUTE', date_trunc('minute', created_at), payment_method,
+               0, 0, count(*), sum(coalesce(total_price, 0))
+        FROM orders
+        WHERE status = 'CANCELLED'
+        GROUP BY 2, 3
+        ON CONFLICT (granularity, bucket_start, payment_method) DO UPDATE SET
+            cancelled_count = b.cancelled_count + EXCLUDED.cancelled_count,
+            cancelled_revenue = b.cancelled_revenue + EXCLUDED.cancelled_revenue;
+    END IF;
+END $$;
@@ -0,0 +1,85 @@
+package com.ms.order;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upgrades a database created by the first version of the service, before any migration existed,
+ * with every migration. Nothing may rely on columns that only Hibernate would add afterwards.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MigrationUpgradeTest {
+
+    // Schema Hibernate generated from the original Order and OrderItem mappings
+    private static final String BASELINE_SCHEMA = """
+            CREATE TABLE orders (
+                id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                user_id        BIGINT NOT NULL,
+                status         VARCHAR(255) NOT NULL,
+                payment_method VARCHAR(255) NOT NULL,
+                updated_at     TIMESTAMP(6),
+                created_at     TIMESTAMP(6) NOT NULL
+            );
+            CREATE TABLE order_items (
+                id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                order_id   BIGINT NOT NULL REFERENCES orders (id),
+                product_id BIGINT NOT NULL,
+                quantity   INTEGER NOT NULL
+            );
+            INSERT INTO orders (user_id, status, payment_method, updated_at, created_at)
+            VALUES (7, 'PENDING', 'PIX', now(), now()),
+                   (7, 'CANCELLED', 'CASH', now(), now() - INTERVAL '2 days');
+            INSERT INTO order_items (order_id, product_id, quantity) VALUES (1, 1, 2), (2, 1, 1);
+            """;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(TestcontainersConfiguration.POSTGRES_IMAGE);
+
+    @Test
+    void baselineDatabaseUpgradesToTheLatestVersion() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute(BASELINE_SCHEMA);
+
+        // Same settings as application.properties
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .placeholders(Map.of("id_allocation_size", "50"))
+                .load()
+                .migrate();
+
+        List<String> orderColumns = jdbc.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_name = 'orders'", String.class);
+        List<String> itemColumns = jdbc.queryForList(
+                "SELECT column_name FROM information_schema.columns WHERE table_name = 'order_items'", String.class);
+        assertThat(orderColumns).contains("total_quantity", "total_price", "version", "cart_id");
+        assertThat(itemColumns).contains("product_name", "unit_price");
+
+        // Legacy orders have no totals yet: counted, but as zero spent until the snapshot backfill
+        Map<String, Object> summary = jdbc.queryForMap(
+                "SELECT order_count, cancelled_count, total_spent FROM user_order_summary WHERE user_id = 7");
+        assertThat(summary.get("order_count")).isEqualTo(2L);
+        assertThat(summary.get("cancelled_count")).isEqualTo(1L);
+        assertThat((BigDecimal) summary.get("total_spent")).isEqualByComparingTo("0");
+
+        assertThat(jdbc.queryForObject("SELECT sum(order_count) FROM order_stats_bucket", Long.class)).isEqualTo(2L);
+        assertThat(jdbc.queryForObject("SELECT sum(cancelled_count) FROM order_stats_bucket", Long.class)).isEqualTo(1L);
+        // Counted with the order it cancels, two days ago, not when it was cancelled
+        assertThat(jdbc.queryForObject("SELECT sum(cancelled_count) FROM order_stats_bucket WHERE date_trunc('hour', bucket_start) = "
+                + "(SELECT date_trunc('hour', created_at) FROM orders WHERE id = 2)", Long.class)).isEqualTo(1L);
+    }
+}
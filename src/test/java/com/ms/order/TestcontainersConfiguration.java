@@ -0,0 +1,23 @@
+package com.ms.order;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * PostgreSQL for tests of native statements (upserts, CTE locking, RETURNING) that H2 cannot run.
+ * Same major version as compose.yml. One container per cached application context.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class TestcontainersConfiguration {
+
+    public static final DockerImageName POSTGRES_IMAGE = DockerImageName.parse("postgres:15-alpine");
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgresContainer() {
+        return new PostgreSQLContainer<>(POSTGRES_IMAGE);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ms.order.consumer;
+
+import com.ms.order.dto.CheckoutEvent;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.service.OrderService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CheckoutBatchConsumerTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+
+    private final OrderProducer orderProducer = mock(OrderProducer.class);
+
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    private final CheckoutBatchConsumer consumer = new CheckoutBatchConsumer(orderService, orderProducer,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), messageConverter);
+
+    @BeforeEach
+    void setUp() {
+        when(orderService.findProcessedCartIds(anyCollection())).thenAnswer(invocation -> new HashSet<Long>());
+        // The batch insert fails, so every checkout is retried on its own
+        when(orderService.createOrders(argThat(orders -> orders != null && orders.size() > 1)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(orderProducer.publishCheckoutDeadLetter(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void cartUniqueViolationIsADuplicateNotADeadLetter() {
+        Message lostRace = checkout(1L);
+        Message created = checkout(2L);
+        when(orderService.createOrders(argThat(orders -> isCart(orders, 1L))))
+                .thenThrow(constraintViolation("uk_orders_cart_id"));
+        when(orderService.createOrders(argThat(orders -> isCart(orders, 2L)))).thenReturn(List.of(order(20L)));
+
+        consumer.handleCheckoutEvents(List.of(lostRace, created));
+
+        verify(orderProducer, never()).publishCheckoutDeadLetter(any(), any());
+        verify(orderService).publishUpdateStockEvent(argThat(event -> event.orderId().equals(20L)));
+    }
+
+    @Test
+    void otherIntegrityViolationsAndUnreadableMessagesAreDeadLettered() {
+        Message unreadable = new Message("{".getBytes(StandardCharsets.UTF_8), jsonProperties());
+        Message invalid = checkout(1L);
+        Message created = checkout(2L);
+        when(orderService.createOrders(argThat(orders -> isCart(orders, 1L))))
+                .thenThrow(constraintViolation("fk_order_items_order"));
+        when(orderService.createOrders(argThat(orders -> isCart(orders, 2L)))).thenReturn(List.of(order(20L)));
+
+        consumer.handleCheckoutEvents(List.of(unreadable, invalid, created));
+
+        verify(orderProducer).publishCheckoutDeadLetter(eq(unreadable), any());
+        verify(orderProducer).publishCheckoutDeadLetter(eq(invalid), any());
+        verify(orderProducer, never()).publishCheckoutDeadLetter(eq(created), any());
+    }
+
+    @Test
+    void unconfirmedDeadLetterFailsTheBatchSoItIsRequeued() {
+        Message unreadable = new Message("{".getBytes(StandardCharsets.UTF_8), jsonProperties());
+        Message created = checkout(2L);
+        when(orderService.createOrders(argThat(orders -> isCart(orders, 2L)))).thenReturn(List.of(order(20L)));
+        when(orderProducer.publishCheckoutDeadLetter(eq(unreadable), any()))
+                .thenReturn(CompletableFuture.failedFuture(new AmqpException("Message nacked: dlq down")));
+
+        assertThatThrownBy(() -> consumer.handleCheckoutEvents(List.of(unreadable, created)))
+                .isInstanceOf(AmqpException.class)
+                .isNotInstanceOf(AmqpRejectAndDontRequeueException.class)
+                .hasRootCauseMessage("Message nacked: dlq down");
+    }
+
+    private Message checkout(Long cartId) {
+        CheckoutEvent event = new CheckoutEvent(cartId, 7L, PaymentMethod.PIX.name(),
+                List.of(new CheckoutEvent.CheckoutItem(100L, 1)));
+        return messageConverter.toMessage(event, jsonProperties());
+    }
+
+    private static MessageProperties jsonProperties() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        return properties;
+    }
+
+    private static boolean isCart(List<CreateOrderDTO> orders, Long cartId) {
+        return orders != null && orders.size() == 1 && cartId.equals(orders.get(0).cartId());
+    }
+
+    private static DataIntegrityViolationException constraintViolation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"), constraintName));
+    }
+
+    private static OrderDTO order(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        return new OrderDTO(id, 7L, OrderStatus.PENDING, now, now, List.of(), PaymentMethod.PIX, 1, null, 0L);
+    }
+}
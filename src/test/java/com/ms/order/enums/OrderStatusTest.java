@@ -0,0 +1,49 @@
+package com.ms.order.enums;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "PENDING,    PROCESSING|CANCELLED",
+            "PROCESSING, SHIPPED|CANCELLED",
+            "SHIPPED,    DELIVERED",
+            "DELIVERED,  ''",
+            "CANCELLED,  ''"
+    })
+    void onlyTheListedTransitionsAreAllowed(OrderStatus from, String targets) {
+        Set<OrderStatus> allowed = EnumSet.noneOf(OrderStatus.class);
+        for (String target : targets.split("\\|")) {
+            if (!target.isBlank()) {
+                allowed.add(OrderStatus.valueOf(target.strip()));
+            }
+        }
+
+        for (OrderStatus target : OrderStatus.values()) {
+            assertThat(from.canTransitionTo(target)).as("%s -> %s", from, target).isEqualTo(allowed.contains(target));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(OrderStatus.class)
+    void sourcesAreTheInverseOfTheTransitions(OrderStatus target) {
+        for (OrderStatus from : OrderStatus.values()) {
+            assertThat(OrderStatus.sourcesOf(target).contains(from)).as("%s -> %s", from, target)
+                    .isEqualTo(from.canTransitionTo(target));
+        }
+    }
+
+    @Test
+    void noStatusMovesBackToPending() {
+        assertThat(OrderStatus.sourcesOf(OrderStatus.PENDING)).isEmpty();
+    }
+}
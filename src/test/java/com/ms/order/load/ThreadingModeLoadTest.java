@@ -0,0 +1,313 @@
+package com.ms.order.load;
+
+import com.ms.order.OrderApplication;
+import com.ms.order.TestcontainersConfiguration;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import com.ms.order.repository.OrderRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives GET /orders/{id} of the real service on platform threads and on virtual threads, against PostgreSQL
+ * and a ProductService stub with a fixed latency. Every read takes a Hikari connection and makes a Feign call:
+ * the order cache and the product cache are off, and orders have legacy items without snapshots.
+ *
+ * The Hikari pool and the Feign connection pool are kept small, so the run shows what happens once they
+ * saturate in each mode: how long requests wait for a connection, how many fail fast at the pool timeouts,
+ * and how many requests queue on each pool. The Hikari timeout is raised above the expected queueing time, so
+ * saturation shows up as waiting, not as errors.
+ *
+ * Absolute numbers depend on the machine and are only logged. What is asserted is that neither mode fails more
+ * than {@value #MAX_ERROR_RATE} of the requests, and that with the pools as the bottleneck virtual threads serve
+ * at least about the same throughput with no worse tail latency than platform threads, within a loose tolerance.
+ *
+ * Run with: mvn test -Pload
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+@Slf4j
+class ThreadingModeLoadTest {
+
+    private static final int ORDERS = 200;
+
+    private static final int REQUESTS = 4000;
+
+    private static final int CONCURRENCY = 800;
+
+    private static final int DB_POOL_SIZE = 10;
+
+    private static final int FEIGN_MAX_CONNECTIONS = 20;
+
+    private static final Duration PRODUCT_LATENCY = Duration.ofMillis(50);
+
+    private static final Duration DB_CONNECTION_TIMEOUT = Duration.ofSeconds(20);
+
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    // Virtual threads may lose this much throughput, or add this much p99, before the comparison fails
+    private static final double TOLERANCE = 0.25;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(TestcontainersConfiguration.POSTGRES_IMAGE);
+
+    @Container
+    static final RabbitMQContainer rabbitmq = new RabbitMQContainer("rabbitmq:3-management-alpine");
+
+    private static HttpServer productService;
+
+    @BeforeAll
+    static void startProductService() throws IOException {
+        productService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        productService.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        productService.createContext("/products/find-products", exchange -> {
+            try {
+                Thread.sleep(PRODUCT_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String body = Arrays.stream(exchange.getRequestURI().getQuery().split("&"))
+                    .map(parameter -> parameter.substring(parameter.indexOf('=') + 1))
+                    .flatMap(value -> Arrays.stream(value.split(",|%2C")))
+                    .map(id -> "{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"description\":\"\",\"price\":10.00,\"stock\":100}")
+                    .collect(Collectors.joining(",", "[", "]"));
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(bytes);
+            }
+        });
+        productService.start();
+    }
+
+    @AfterAll
+    static void stopProductService() {
+        productService.stop(0);
+    }
+
+    @Test
+    void virtualThreadsServeSaturatedPoolsAtLeastAsWellAsPlatformThreads() throws Exception {
+        LoadResult platform = readOrdersWithSaturatedPools(false);
+        LoadResult virtual = readOrdersWithSaturatedPools(true);
+
+        assertThat(platform.errorRate()).as("platform threads error rate, %s", platform).isLessThanOrEqualTo(MAX_ERROR_RATE);
+        assertThat(virtual.errorRate()).as("virtual threads error rate, %s", virtual).isLessThanOrEqualTo(MAX_ERROR_RATE);
+        assertThat(virtual.throughput()).as("virtual threads throughput, platform: %s", platform)
+                .isGreaterThanOrEqualTo(platform.throughput() * (1 - TOLERANCE));
+        assertThat(virtual.p99Millis()).as("virtual threads p99, platform: %s", platform)
+                .isLessThanOrEqualTo(platform.p99Millis() * (1 + TOLERANCE));
+    }
+
+    private LoadResult readOrdersWithSaturatedPools(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = start(virtualThreads)) {
+            List<Long> orderIds = seedOrders(context.getBean(OrderRepository.class));
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            PoolingHttpClientConnectionManager feignPool = context.getBeanProvider(PoolingHttpClientConnectionManager.class)
+                    .getIfAvailable();
+            if (feignPool == null) {
+                log.warn("Feign connection pool is not exposed as a bean, its queue is not sampled");
+            }
+
+            load(port, orderIds, CONCURRENCY, null, null);
+            LoadResult result = load(port, orderIds, REQUESTS, registry, feignPool);
+
+            Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+            log.info("{} threads: {}, Hikari acquire mean={} ms max={} ms, timeouts={}",
+                    virtualThreads ? "virtual" : "platform", result,
+                    acquire == null ? "n/a" : String.format("%.1f", acquire.mean(TimeUnit.MILLISECONDS)),
+                    acquire == null ? "n/a" : String.format("%.1f", acquire.max(TimeUnit.MILLISECONDS)),
+                    registry.find("hikaricp.connections.timeout").counter() == null
+                            ? "n/a" : registry.find("hikaricp.connections.timeout").counter().count());
+            return result;
+        }
+    }
+
+    private ConfigurableApplicationContext start(boolean virtualThreads) {
+        return new SpringApplicationBuilder(OrderApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=200",
+                "--server.tomcat.accept-count=1000",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.datasource.hikari.maximum-pool-size=" + DB_POOL_SIZE,
+                "--spring.datasource.hikari.connection-timeout=" + DB_CONNECTION_TIMEOUT.toMillis(),
+                "--spring.rabbitmq.addresses=" + rabbitmq.getAmqpUrl(),
+                "--spring.rabbitmq.username=" + rabbitmq.getAdminUsername(),
+                "--spring.rabbitmq.password=" + rabbitmq.getAdminPassword(),
+                "--eureka.client.enabled=false",
+                "--spring.cloud.openfeign.client.config.product.url=http://localhost:" + productService.getAddress().getPort(),
+                "--spring.cloud.openfeign.httpclient.max-connections=" + FEIGN_MAX_CONNECTIONS,
+                "--spring.cloud.openfeign.httpclient.max-connections-per-route=" + FEIGN_MAX_CONNECTIONS,
+                // Let concurrent lookups reach the Feign pool instead of being held back in front of it
+                "--app.product.lookup.batch.max-in-flight=" + CONCURRENCY,
+                "--app.product.client.max-concurrent-calls=" + CONCURRENCY,
+                "--app.product.client.hedge-delay=PT10S",
+                // Every read goes to the database and to ProductService
+                "--app.order.cache.max-size=0",
+                "--app.product.cache.max-size=0");
+    }
+
+    private List<Long> seedOrders(OrderRepository repository) {
+        if (repository.count() == 0) {
+            List<Order> orders = new ArrayList<>(ORDERS);
+            for (long i = 0; i < ORDERS; i++) {
+                Order order = Order.builder()
+                        .userId(i % 50)
+                        .status(OrderStatus.PENDING)
+                        .paymentMethod(PaymentMethod.PIX)
+                        .createdAt(LocalDateTime.now())
+                        .updatedAt(LocalDateTime.now())
+                        .build();
+                List<OrderItem> items = new ArrayList<>();
+                for (long productId : new long[]{i * 2 + 1, i * 2 + 2}) {
+                    OrderItem item = new OrderItem(productId, 1);
+                    item.setOrder(order);
+                    items.add(item);
+                }
+                order.setItems(items);
+                orders.add(order);
+            }
+            repository.saveAll(orders);
+        }
+        return repository.findPageIds(PageRequest.of(0, ORDERS));
+    }
+
+    private LoadResult load(int port, List<Long> orderIds, int requests, MeterRegistry registry,
+                            PoolingHttpClientConnectionManager feignPool) throws InterruptedException {
+        long[] latencies = new long[requests];
+        Map<Integer, Integer> statuses = new ConcurrentHashMap<>();
+        Semaphore concurrency = new Semaphore(CONCURRENCY);
+        LongAccumulator maxDbPending = new LongAccumulator(Math::max, 0);
+        LongAccumulator maxFeignPending = new LongAccumulator(Math::max, 0);
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        if (registry != null) {
+            sampler.scheduleAtFixedRate(() -> {
+                Gauge pending = registry.find("hikaricp.connections.pending").gauge();
+                if (pending != null) {
+                    maxDbPending.accumulate((long) pending.value());
+                }
+                if (feignPool != null) {
+                    maxFeignPending.accumulate(feignPool.getTotalStats().getPending());
+                }
+            }, 0, 20, TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.nanoTime();
+        try (HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+             ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                final int index = i;
+                Long orderId = orderIds.get(ThreadLocalRandom.current().nextInt(orderIds.size()));
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/orders/" + orderId))
+                        .header("X-User-Email", "load@test")
+                        .header("X-User-Role", "ADMIN")
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                concurrency.acquire();
+                callers.submit(() -> {
+                    long requestStart = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    } finally {
+                        latencies[index] = System.nanoTime() - requestStart;
+                        concurrency.release();
+                    }
+                    statuses.merge(status, 1, Integer::sum);
+                });
+            }
+        } finally {
+            sampler.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new LoadResult(
+                requests * 1_000_000_000.0 / elapsed,
+                latencies[requests / 2] / 1_000_000.0,
+                latencies[(int) (requests * 0.99)] / 1_000_000.0,
+                Map.copyOf(statuses),
+                maxDbPending.get(),
+                maxFeignPending.get());
+    }
+
+    /**
+     * Statuses are HTTP codes, -1 for requests that got no response.
+     */
+    record LoadResult(double throughput, double p50Millis, double p99Millis, Map<Integer, Integer> statuses,
+                      long maxDbPending, long maxFeignPending) {
+
+        /**
+         * Share of requests that got no response or a 5xx.
+         */
+        double errorRate() {
+            int total = 0;
+            int errors = 0;
+            for (Map.Entry<Integer, Integer> status : statuses.entrySet()) {
+                total += status.getValue();
+                if (status.getKey() < 0 || status.getKey() >= 500) {
+                    errors += status.getValue();
+                }
+            }
+            return total == 0 ? 1 : (double) errors / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("throughput=%.0f req/s p50=%.1f ms p99=%.1f ms statuses=%s "
+                            + "max waiting for a DB connection=%d, max waiting for a Feign connection=%d",
+                    throughput, p50Millis, p99Millis, statuses, maxDbPending, maxFeignPending);
+        }
+    }
+}
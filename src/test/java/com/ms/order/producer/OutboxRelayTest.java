@@ -0,0 +1,106 @@
+package com.ms.order.producer;
+
+import com.ms.order.model.OutboxEvent;
+import com.ms.order.repository.OutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+
+    private final OrderProducer orderProducer = mock(OrderProducer.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final OutboxRelay relay = new OutboxRelay(outboxRepository, orderProducer, new TransactionTemplate(transactionManager),
+            10, 100, Duration.ofMinutes(1), MAX_ATTEMPTS, Duration.ofSeconds(1), Duration.ofMinutes(5), Duration.ofDays(7));
+
+    @Test
+    void confirmsAreAwaitedAfterTheClaimIsCommitted() {
+        when(outboxRepository.claimNextBatch(anyInt(), any(), any())).thenReturn(List.of(event(1L, "ok", 1)));
+        when(orderProducer.publishAsync(anyString(), any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        InOrder order = inOrder(transactionManager, outboxRepository, orderProducer);
+        order.verify(outboxRepository).claimNextBatch(anyInt(), any(), any());
+        order.verify(transactionManager).commit(any());
+        order.verify(orderProducer).publishAsync(eq("ok"), any(Message.class));
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(outboxRepository).markSent(eq(List.of(1L)), any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void failedEventsBackOffAndArePoisonedAfterMaxAttempts() {
+        when(outboxRepository.claimNextBatch(anyInt(), any(), any())).thenReturn(List.of(
+                event(3L, "unroutable", MAX_ATTEMPTS),
+                event(2L, "unroutable", 2),
+                event(1L, "ok", 1)));
+        when(orderProducer.publishAsync(eq("ok"), any(Message.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderProducer.publishAsync(eq("unroutable"), any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new AmqpException("Message returned as unroutable")));
+        LocalDateTime before = LocalDateTime.now();
+
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        verify(outboxRepository).markSent(eq(List.of(1L)), any());
+        // Second failure: 1s doubled
+        verify(outboxRepository).retryAt(eq(List.of(2L)), argThat(
+                retryAt -> !retryAt.isBefore(before.plusSeconds(2))));
+        verify(outboxRepository).park(eq(List.of(3L)), any());
+    }
+
+    @Test
+    void unconfirmedEventsAreNotMarkedSent() {
+        when(outboxRepository.claimNextBatch(anyInt(), any(), any())).thenReturn(List.of(event(1L, "slow", 1)));
+        when(orderProducer.publishAsync(anyString(), any(Message.class))).thenReturn(new CompletableFuture<>());
+
+        assertThat(relay.relayBatch()).isZero();
+
+        verify(outboxRepository, never()).markSent(any(), any());
+        verify(outboxRepository).retryAt(eq(List.of(1L)), any());
+    }
+
+    @Test
+    void leaseMustOutlastTheConfirmWait() {
+        assertThatThrownBy(() -> new OutboxRelay(outboxRepository, orderProducer, new TransactionTemplate(transactionManager),
+                10, 60_000, Duration.ofMinutes(1), MAX_ATTEMPTS, Duration.ofSeconds(1), Duration.ofMinutes(5), Duration.ofDays(7)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OutboxEvent event(Long id, String routingKey, int attempts) {
+        return OutboxEvent.builder()
+                .id(id)
+                .routingKey(routingKey)
+                .payload("{}")
+                .attempts(attempts)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
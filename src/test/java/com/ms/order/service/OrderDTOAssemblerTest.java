@@ -0,0 +1,141 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderItemDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pins the DTOs built for every kind of item, since listings, caches and exports all depend on them.
+ */
+class OrderDTOAssemblerTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    private static final LocalDateTime UPDATED_AT = CREATED_AT.plusMinutes(5);
+
+    private final ProductLookupService productLookupService = mock(ProductLookupService.class);
+
+    private final OrderDTOAssembler assembler = new OrderDTOAssembler(productLookupService);
+
+    @Test
+    void snapshotItemsKeepTheirSnapshotAndStoredTotals() {
+        lookup(ProductLookup.EMPTY);
+        Order order = order(1L, 3, new BigDecimal("450.00"),
+                item(10L, 100L, 1, "Keyboard", "150.00"),
+                item(11L, 101L, 2, "Mouse", "150.00"));
+
+        OrderDTO dto = assembler.toOrderDTO(order);
+
+        assertThat(dto).isEqualTo(new OrderDTO(1L, 7L, OrderStatus.PENDING, UPDATED_AT, CREATED_AT, List.of(
+                new OrderItemDTO(10L, "Keyboard", 100L, 1, new BigDecimal("150.00"), new BigDecimal("150.00"), false),
+                new OrderItemDTO(11L, "Mouse", 101L, 2, new BigDecimal("150.00"), new BigDecimal("300.00"), false)),
+                PaymentMethod.PIX, 3, new BigDecimal("450.00"), 2L));
+        verify(productLookupService).findProductsForDisplay(Set.of());
+    }
+
+    @Test
+    void legacyItemsUseCurrentProductsAndDropMissingOnes() {
+        lookup(new ProductLookup(Map.of(200L, product(200L, "Monitor", "899.90")), Set.of()));
+        Order legacy = order(2L, null, null,
+                item(20L, 200L, 2, null, null),
+                item(21L, 201L, 1, null, null),
+                item(22L, 100L, 1, "Keyboard", "150.00"));
+
+        OrderDTO dto = assembler.toOrderDTOs(List.of(legacy)).getFirst();
+
+        // Totals are summed over the items that are returned
+        assertThat(dto).isEqualTo(new OrderDTO(2L, 7L, OrderStatus.PENDING, UPDATED_AT, CREATED_AT, List.of(
+                new OrderItemDTO(20L, "Monitor", 200L, 2, new BigDecimal("899.90"), new BigDecimal("1799.80"), false),
+                new OrderItemDTO(22L, "Keyboard", 100L, 1, new BigDecimal("150.00"), new BigDecimal("150.00"), false)),
+                PaymentMethod.PIX, 3, new BigDecimal("1949.80"), 2L));
+        verify(productLookupService).findProductsForDisplay(Set.of(200L, 201L));
+    }
+
+    @Test
+    void staleItemsUseLastKnownDataOrNullPricesLeftOutOfTheTotal() {
+        lookup(new ProductLookup(Map.of(200L, product(200L, "Monitor", "899.90")), Set.of(200L, 201L)));
+        Order legacy = order(3L, null, null,
+                item(30L, 200L, 1, null, null),
+                item(31L, 201L, 4, null, null));
+
+        OrderDTO dto = assembler.toOrderDTO(legacy);
+
+        assertThat(dto).isEqualTo(new OrderDTO(3L, 7L, OrderStatus.PENDING, UPDATED_AT, CREATED_AT, List.of(
+                new OrderItemDTO(30L, "Monitor", 200L, 1, new BigDecimal("899.90"), new BigDecimal("899.90"), true),
+                new OrderItemDTO(31L, null, 201L, 4, null, null, true)),
+                PaymentMethod.PIX, 5, new BigDecimal("899.90"), 2L));
+        assertThat(dto.hasStaleItems()).isTrue();
+    }
+
+    @Test
+    void orderWithOnlyUnknownPricesTotalsZero() {
+        lookup(new ProductLookup(Map.of(), Set.of(201L)));
+        Order legacy = order(4L, null, null, item(40L, 201L, 2, null, null));
+
+        OrderDTO dto = assembler.toOrderDTO(legacy);
+
+        assertThat(dto.items()).containsExactly(new OrderItemDTO(40L, null, 201L, 2, null, null, true));
+        assertThat(dto.totalQuantity()).isEqualTo(2);
+        assertThat(dto.totalPrice()).isEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void orderWhoseItemsAllDisappearedHasNoItems() {
+        lookup(ProductLookup.EMPTY);
+        Order legacy = order(5L, null, null, item(50L, 201L, 2, null, null));
+
+        OrderDTO dto = assembler.toOrderDTO(legacy);
+
+        assertThat(dto.items()).isEmpty();
+        assertThat(dto.totalQuantity()).isZero();
+        assertThat(dto.totalPrice()).isEqualTo(BigDecimal.ZERO);
+        assertThat(dto.hasStaleItems()).isFalse();
+    }
+
+    private void lookup(ProductLookup products) {
+        when(productLookupService.findProductsForDisplay(any())).thenReturn(products);
+    }
+
+    private static Order order(Long id, Integer totalQuantity, BigDecimal totalPrice, OrderItem... items) {
+        Order order = Order.builder()
+                .id(id)
+                .userId(7L)
+                .status(OrderStatus.PENDING)
+                .paymentMethod(PaymentMethod.PIX)
+                .totalQuantity(totalQuantity)
+                .totalPrice(totalPrice)
+                .version(2L)
+                .createdAt(CREATED_AT)
+                .updatedAt(UPDATED_AT)
+                .build();
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+        }
+        return order;
+    }
+
+    private static OrderItem item(Long id, Long productId, int quantity, String name, String unitPrice) {
+        return new OrderItem(id, null, productId, quantity, name, unitPrice == null ? null : new BigDecimal(unitPrice));
+    }
+
+    private static InternalProductDTO product(Long id, String name, String price) {
+        return new InternalProductDTO(id, name, null, new BigDecimal(price), 10);
+    }
+}
@@ -0,0 +1,289 @@
+package com.ms.order.service;
+
+import com.ms.order.auth.CurrentUserService;
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.OrderExportFilter;
+import com.ms.order.dto.OrderListVersion;
+import com.ms.order.dto.OrderVersion;
+import com.ms.order.dto.OrderPageDTO;
+import com.ms.order.enums.ExportFormat;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guards the read paths against N+1 regressions: the number of SQL statements
+ * and ProductService calls must not grow with the number of orders returned.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Migrations target PostgreSQL, the H2 schema comes from the mappings
+        "spring.flyway.enabled=false",
+        "app.export.chunk-size=8"
+})
+@Import({OrderService.class, OrderDTOAssembler.class, OrderExportService.class, OrderDTOCache.class, RecentCheckoutFilter.class,
+        ProductLookupService.class, ProductLookupBatcher.class, ResilientProductClient.class, ProductCatalogCache.class, JacksonAutoConfiguration.class})
+class OrderServiceQueryCountTest {
+
+    private static final int ORDERS = 20;
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderDTOCache orderDTOCache;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private OrderProducer orderProducer;
+
+    @MockitoBean
+    private CurrentUserService currentUserService;
+
+    // Their upserts are PostgreSQL-specific
+    @MockitoBean
+    private UserOrderSummaryService userOrderSummaryService;
+
+    @MockitoBean
+    private OrderStatsService orderStatsService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        productCatalogCache.invalidateAll();
+        orderDTOCache.invalidateAll();
+        when(productService.findProductsByIds(anySet())).thenReturn(List.of(
+                new InternalProductDTO(1L, "Keyboard", "", new BigDecimal("150.00"), 10),
+                new InternalProductDTO(2L, "Mouse", "", new BigDecimal("80.00"), 10)
+        ));
+
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = Order.builder()
+                    .userId(USER_ID)
+                    .status(OrderStatus.PENDING)
+                    .paymentMethod(PaymentMethod.PIX)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            List<OrderItem> items = new ArrayList<>();
+            for (long productId : Set.of(1L, 2L)) {
+                OrderItem item = new OrderItem(productId, 2);
+                item.setOrder(order);
+                items.add(item);
+            }
+            order.setItems(items);
+            repository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllOrdersUsesConstantNumberOfQueries() {
+        List<OrderDTO> orders = orderService.getAllOrders(PageRequest.of(0, ORDERS, Sort.by("id")));
+
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).allSatisfy(order -> assertThat(order.items()).hasSize(2));
+        assertThat(orders).extracting(OrderDTO::id).isSorted();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        verify(productService, times(1)).findProductsByIds(anySet());
+    }
+
+    @Test
+    void findByUserIdUsesSingleQuery() {
+        List<OrderDTO> orders = orderService.findByUserId(USER_ID);
+
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).allSatisfy(order -> assertThat(order.items()).hasSize(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        verify(productService, times(1)).findProductsByIds(anySet());
+    }
+
+    @Test
+    void findByIdUsesSingleQuery() {
+        Long id = repository.findPageIds(PageRequest.of(0, 1)).getFirst();
+        statistics.clear();
+
+        OrderDTO order = orderService.findById(id);
+
+        assertThat(order.items()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedFindByIdIsServedFromCache() {
+        Long id = repository.findPageIds(PageRequest.of(0, 1)).getFirst();
+        orderService.findById(id);
+        statistics.clear();
+
+        OrderDTO order = orderService.findById(id);
+
+        assertThat(order.id()).isEqualTo(id);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        verify(productService, times(1)).findProductsByIds(anySet());
+    }
+
+    @Test
+    void versionLookupsUseSingleQueryWithoutProductCalls() {
+        Long id = repository.findPageIds(PageRequest.of(0, 1)).getFirst();
+        statistics.clear();
+
+        OrderVersion version = orderService.findVersion(id);
+        OrderListVersion listVersion = orderService.findUserOrdersVersion(USER_ID);
+
+        assertThat(version.version()).isZero();
+        assertThat(listVersion.count()).isEqualTo(ORDERS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        verify(productService, never()).findProductsByIds(anySet());
+    }
+
+    @Test
+    void processedCartsAreDetectedOnceThenFromMemory() {
+        CreateOrderDTO checkout = new CreateOrderDTO(USER_ID, List.of(new CreateOrderDTO.CreateOrderItemDTO(1L, 1)),
+                PaymentMethod.PIX, 99L);
+        orderService.createOrders(List.of(checkout));
+        statistics.clear();
+
+        assertThat(orderService.isCheckoutProcessed(99L)).isTrue();
+        assertThat(orderService.isCheckoutProcessed(99L)).isTrue();
+        assertThat(orderService.isCheckoutProcessed(100L)).isFalse();
+        // The second lookup of cart 99 is answered by the recent checkout filter
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        assertThatThrownBy(() -> orderService.createOrders(List.of(checkout)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void scrollVisitsEveryOrderOnceWithConstantQueriesPerPage() {
+        List<Long> visited = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            OrderPageDTO page = orderService.scrollByUserId(USER_ID, cursor, 7);
+
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            page.items().forEach(order -> visited.add(order.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(visited).hasSize(ORDERS).doesNotHaveDuplicates();
+        assertThat(visited).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    void exportUsesOneQueryPerChunk() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        orderExportService.export(new OrderExportFilter(OrderStatus.PENDING, USER_ID, null, null), ExportFormat.CSV, output);
+
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(1 + ORDERS * 2);
+        assertThat(lines.getFirst()).startsWith("order_id,");
+        // Next IDs and their orders with items, per chunk of 8 orders; the short last chunk ends the export
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3 * 2);
+        verify(productService, times(1)).findProductsByIds(anySet());
+    }
+
+    @Test
+    void snapshotOrdersAreReadWithoutProductLookups() {
+        Order order = Order.builder()
+                .userId(USER_ID + 1)
+                .status(OrderStatus.PENDING)
+                .paymentMethod(PaymentMethod.CASH)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        OrderItem item = new OrderItem(1L, 3, "Keyboard", new BigDecimal("150.00"));
+        item.setOrder(order);
+        order.setItems(new ArrayList<>(List.of(item)));
+        order.updateTotals();
+        repository.save(order);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<OrderDTO> orders = orderService.findByUserId(USER_ID + 1);
+
+        assertThat(orders).singleElement().satisfies(dto -> {
+            assertThat(dto.totalQuantity()).isEqualTo(3);
+            assertThat(dto.totalPrice()).isEqualByComparingTo("450.00");
+            assertThat(dto.items()).singleElement().satisfies(line -> assertThat(line.name()).isEqualTo("Keyboard"));
+        });
+        verify(productService, never()).findProductsByIds(anySet());
+    }
+
+    @Test
+    void productServiceOutageServesLastKnownProductsMarkedStale() {
+        orderService.findByUserId(USER_ID);
+        productCatalogCache.invalidate(1L);
+        when(productService.findProductsByIds(anySet())).thenThrow(new IllegalStateException("product service down"));
+
+        List<OrderDTO> orders = orderService.findByUserId(USER_ID);
+
+        assertThat(orders).allSatisfy(order -> assertThat(order.items()).hasSize(2).allSatisfy(line -> {
+            assertThat(line.name()).isNotNull();
+            assertThat(line.stale()).isEqualTo(line.productId() == 1L);
+        }));
+    }
+}
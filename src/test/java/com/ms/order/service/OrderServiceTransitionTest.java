@@ -0,0 +1,212 @@
+package com.ms.order.service;
+
+import com.ms.order.auth.CurrentUserService;
+import com.ms.order.dto.StatusTransitionResult;
+import com.ms.order.dto.StatusTransitionResult.Outcome;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.exception.InvalidOperationException;
+import com.ms.order.exception.PreconditionFailedException;
+import com.ms.order.exception.ResourceNotFoundException;
+import com.ms.order.exception.StaleVersionException;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.repository.OrderRepository;
+import com.ms.order.repository.OrderStatusView;
+import com.ms.order.repository.StatusTransitionRow;
+import com.ms.order.repository.TransitionedOrderRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * How a transition that the conditional UPDATE did not apply is explained from the current state of the order.
+ */
+class OrderServiceTransitionTest {
+
+    private static final long ORDER_ID = 1L;
+
+    private static final long OWNER_ID = 7L;
+
+    private final OrderRepository repository = mock(OrderRepository.class);
+
+    private final CurrentUserService currentUserService = mock(CurrentUserService.class);
+
+    private final UserOrderSummaryService userOrderSummaryService = mock(UserOrderSummaryService.class);
+
+    private final OrderStatsService orderStatsService = mock(OrderStatsService.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final OrderProducer orderProducer = mock(OrderProducer.class);
+
+    private final OrderService orderService = new OrderService(repository, mock(ProductLookupService.class),
+            mock(OrderDTOAssembler.class), orderProducer, currentUserService, mock(OrderDTOCache.class),
+            eventPublisher, mock(RecentCheckoutFilter.class), userOrderSummaryService, orderStatsService);
+
+    @Test
+    void appliedTransitionReportsThePreviousStatusAndNewVersion() {
+        TransitionedOrderRow row = mock(TransitionedOrderRow.class);
+        when(row.getUserId()).thenReturn(OWNER_ID);
+        when(row.getPreviousStatus()).thenReturn("PENDING");
+        when(row.getVersion()).thenReturn(4L);
+        when(repository.transitionStatus(eq(ORDER_ID), anyCollection(), eq("PROCESSING"), eq(3L), eq(OWNER_ID), any()))
+                .thenReturn(Optional.of(row));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.PROCESSING, 3L, OWNER_ID);
+
+        assertThat(result).isEqualTo(new StatusTransitionResult(Outcome.APPLIED, ORDER_ID, OWNER_ID,
+                OrderStatus.PENDING, OrderStatus.PROCESSING, 4L));
+        verify(repository, never()).findStatusById(anyLong());
+        verify(userOrderSummaryService).recordTransitions(OrderStatus.PROCESSING, List.of(row));
+        verify(orderStatsService).recordTransitions(OrderStatus.PROCESSING, List.of(row));
+        verify(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void missingOrderIsNotFound() {
+        rejectTransition(null);
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.CANCELLED, null, null);
+
+        assertThat(result).isEqualTo(new StatusTransitionResult(Outcome.NOT_FOUND, ORDER_ID, null, null,
+                OrderStatus.CANCELLED, null));
+        verifyNoInteractions(userOrderSummaryService, orderStatsService, eventPublisher);
+    }
+
+    @Test
+    void orderOfAnotherUserIsNotOwner() {
+        rejectTransition(view(OrderStatus.PENDING, 2L));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.CANCELLED, null, OWNER_ID + 1);
+
+        assertThat(result.outcome()).isEqualTo(Outcome.NOT_OWNER);
+    }
+
+    @Test
+    void ownershipIsCheckedBeforeTheStatus() {
+        rejectTransition(view(OrderStatus.DELIVERED, 2L));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.CANCELLED, null, OWNER_ID + 1);
+
+        assertThat(result.outcome()).isEqualTo(Outcome.NOT_OWNER);
+    }
+
+    @Test
+    void disallowedTargetIsInvalidTransitionWithTheCurrentState() {
+        rejectTransition(view(OrderStatus.SHIPPED, 5L));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.CANCELLED, null, OWNER_ID);
+
+        assertThat(result).isEqualTo(new StatusTransitionResult(Outcome.INVALID_TRANSITION, ORDER_ID, OWNER_ID,
+                OrderStatus.SHIPPED, OrderStatus.CANCELLED, 5L));
+    }
+
+    @Test
+    void allowedTransitionAtAnotherVersionIsStale() {
+        rejectTransition(view(OrderStatus.PENDING, 5L));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.CANCELLED, 4L, OWNER_ID);
+
+        assertThat(result).isEqualTo(new StatusTransitionResult(Outcome.STALE_VERSION, ORDER_ID, OWNER_ID,
+                OrderStatus.PENDING, OrderStatus.CANCELLED, 5L));
+    }
+
+    @Test
+    void targetWithoutSourcesIsRejectedWithoutAnUpdate() {
+        OrderStatusView processing = view(OrderStatus.PROCESSING, 1L);
+        when(repository.findStatusById(ORDER_ID)).thenReturn(Optional.of(processing));
+
+        StatusTransitionResult result = orderService.transitionStatus(ORDER_ID, OrderStatus.PENDING, null, null);
+
+        assertThat(result.outcome()).isEqualTo(Outcome.INVALID_TRANSITION);
+        verify(repository, never()).transitionStatus(anyLong(), anyCollection(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void bulkResultsFollowTheRequestOrder() {
+        StatusTransitionRow applied = mock(StatusTransitionRow.class);
+        when(applied.getId()).thenReturn(2L);
+        when(applied.getUserId()).thenReturn(OWNER_ID);
+        when(applied.getPreviousStatus()).thenReturn("PENDING");
+        when(applied.getVersion()).thenReturn(1L);
+        when(repository.transitionStatuses(anyList(), anyCollection(), eq("PROCESSING"), any())).thenReturn(List.of(applied));
+        OrderStatusView delivered = view(OrderStatus.DELIVERED, 3L);
+        when(repository.findStatusesByIdIn(List.of(1L, 3L))).thenReturn(List.of(delivered));
+
+        List<StatusTransitionResult> results = orderService.transitionStatuses(OrderStatus.PROCESSING, List.of(1L, 2L, 3L));
+
+        assertThat(results).extracting(StatusTransitionResult::orderId).containsExactly(1L, 2L, 3L);
+        assertThat(results).extracting(StatusTransitionResult::outcome)
+                .containsExactly(Outcome.INVALID_TRANSITION, Outcome.APPLIED, Outcome.NOT_FOUND);
+    }
+
+    @Test
+    void bulkTransitionsOtherThanCancellationRestoreNoStock() {
+        StatusTransitionRow applied = mock(StatusTransitionRow.class);
+        when(applied.getId()).thenReturn(ORDER_ID);
+        when(applied.getPreviousStatus()).thenReturn("PROCESSING");
+        when(repository.transitionStatuses(anyList(), anyCollection(), eq("SHIPPED"), any())).thenReturn(List.of(applied));
+
+        orderService.transitionStatuses(OrderStatus.SHIPPED, List.of(ORDER_ID));
+
+        verify(repository, never()).findItemRowsByOrderIdIn(anyCollection());
+        verifyNoInteractions(orderProducer);
+    }
+
+    @Test
+    void rejectedCancellationsBecomeTypedErrors() {
+        when(currentUserService.isAdmin()).thenReturn(false);
+
+        rejectTransition(null);
+        assertThatThrownBy(() -> orderService.cancelOrder(ORDER_ID, OWNER_ID, null))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        rejectTransition(view(OrderStatus.PENDING, 2L));
+        assertThatThrownBy(() -> orderService.cancelOrder(ORDER_ID, OWNER_ID, 1L))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        // Changed concurrently without If-Match
+        rejectTransition(view(OrderStatus.PENDING, 2L));
+        assertThatThrownBy(() -> orderService.cancelOrder(ORDER_ID, OWNER_ID, null))
+                .isInstanceOf(StaleVersionException.class);
+
+        rejectTransition(view(OrderStatus.SHIPPED, 2L));
+        assertThatThrownBy(() -> orderService.cancelOrder(ORDER_ID, OWNER_ID, null))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessageContaining("shipped");
+
+        assertThatThrownBy(() -> orderService.cancelOrder(ORDER_ID, OWNER_ID + 1, null))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessageContaining("their own orders");
+    }
+
+    private void rejectTransition(OrderStatusView current) {
+        when(repository.transitionStatus(anyLong(), anyCollection(), anyString(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(repository.findStatusById(ORDER_ID)).thenReturn(Optional.ofNullable(current));
+    }
+
+    private static OrderStatusView view(OrderStatus status, long version) {
+        OrderStatusView view = mock(OrderStatusView.class);
+        when(view.getId()).thenReturn(ORDER_ID);
+        when(view.getStatus()).thenReturn(status);
+        when(view.getUserId()).thenReturn(OWNER_ID);
+        when(view.getVersion()).thenReturn(version);
+        return view;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ms.order.service;
+
+import com.ms.order.TestcontainersConfiguration;
+import com.ms.order.dto.OrderStatsDTO;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.enums.StatsGranularity;
+import com.ms.order.repository.OrderStatsBucketRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compaction of the order_stats_bucket time series against PostgreSQL, with the default retentions
+ * (minutes for 6 hours, hours for 7 days). Not transactional, so the rows are removed after every test.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestcontainersConfiguration.class, OrderStatsService.class})
+class OrderStatsPostgresTest {
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderStatsBucketRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM order_stats_bucket");
+    }
+
+    @Test
+    void compactionMovesExpiredBucketsToCoarserOnesWithoutCountingTwice() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime recent = StatsGranularity.MINUTE.truncate(now.minusMinutes(5));
+        LocalDateTime tenHoursAgo = StatsGranularity.HOUR.truncate(now.minusHours(10));
+        LocalDateTime eightDaysAgo = StatsGranularity.MINUTE.truncate(now.minusDays(8));
+        add(recent, 1, "10.00", 0, "0");
+        add(tenHoursAgo, 2, "20.00", 1, "10.00");
+        add(tenHoursAgo.plusSeconds(60), 1, "5.00", 0, "0");
+        add(eightDaysAgo, 4, "40.00", 0, "0");
+        // Already compacted earlier: the moved minutes are added to it
+        jdbcTemplate.update("INSERT INTO order_stats_bucket (granularity, bucket_start, payment_method, order_count, "
+                        + "revenue, cancelled_count, cancelled_revenue) VALUES ('HOUR', ?, 'PIX', 1, 1.00, 0, 0)",
+                StatsGranularity.HOUR.truncate(tenHoursAgo));
+
+        orderStatsService.compact();
+        orderStatsService.compact();
+
+        assertThat(bucket("MINUTE", recent)).containsEntry("order_count", 1L);
+        assertThat(bucket("HOUR", StatsGranularity.HOUR.truncate(tenHoursAgo)))
+                .containsEntry("order_count", 4L)
+                .containsEntry("cancelled_count", 1L)
+                .satisfies(row -> assertThat((BigDecimal) row.get("revenue")).isEqualByComparingTo("26.00"));
+        assertThat(bucket("DAY", StatsGranularity.DAY.truncate(eightDaysAgo))).containsEntry("order_count", 4L);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM order_stats_bucket", Long.class)).isEqualTo(3L);
+
+        // Every order is still counted exactly once over the whole range
+        OrderStatsDTO stats = orderStatsService.findStats(now.minusDays(30), null, null);
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.DAY);
+        assertThat(stats.total().orderCount()).isEqualTo(9);
+        assertThat(stats.total().revenue()).isEqualByComparingTo("76.00");
+        assertThat(stats.total().cancelledRevenue()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void recentBucketsAreServedByMinute() {
+        LocalDateTime minute = StatsGranularity.MINUTE.truncate(LocalDateTime.now().minusMinutes(3));
+        add(minute, 2, "30.00", 1, "15.00");
+        add(minute.plusSeconds(60), 1, "5.00", 0, "0");
+
+        OrderStatsDTO stats = orderStatsService.findStats(minute.minusMinutes(10), null, null);
+
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.MINUTE);
+        assertThat(stats.points()).hasSize(2);
+        assertThat(stats.points().getFirst()).satisfies(point -> {
+            assertThat(point.bucketStart()).isEqualTo(minute);
+            assertThat(point.cancellationRate()).isEqualTo(0.5);
+            assertThat(point.netRevenue()).isEqualByComparingTo("15.00");
+        });
+    }
+
+    private void add(LocalDateTime bucketStart, long orders, String revenue, long cancelled, String cancelledRevenue) {
+        transactionTemplate.executeWithoutResult(status -> repository.add(bucketStart, PaymentMethod.PIX.name(),
+                orders, new BigDecimal(revenue), cancelled, new BigDecimal(cancelledRevenue)));
+    }
+
+    private Map<String, Object> bucket(String granularity, LocalDateTime bucketStart) {
+        return jdbcTemplate.queryForMap("SELECT order_count, revenue, cancelled_count FROM order_stats_bucket "
+                + "WHERE granularity = ? AND bucket_start = ?", granularity, bucketStart);
+    }
+}
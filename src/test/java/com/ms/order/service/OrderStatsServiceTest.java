@@ -0,0 +1,156 @@
+package com.ms.order.service;
+
+import com.ms.order.dto.OrderStatsDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.enums.StatsGranularity;
+import com.ms.order.exception.ValidationException;
+import com.ms.order.repository.OrderStatsBucketRepository;
+import com.ms.order.repository.OrderStatsRow;
+import com.ms.order.repository.StatusTransitionRow;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class OrderStatsServiceTest {
+
+    private final OrderStatsBucketRepository repository = mock(OrderStatsBucketRepository.class);
+
+    // Default retentions, minutes for 6 hours and hours for 7 days, with at most 100 points per query
+    private final OrderStatsService service = new OrderStatsService(repository, Duration.ofHours(6), Duration.ofDays(7), 100);
+
+    @Test
+    void rangeMustStartBeforeItEnds() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThatThrownBy(() -> service.findStats(null, now, null)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.findStats(now, now, null)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.findStats(now.minusHours(1), now.minusHours(2), null))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.findStats(now.plusHours(1), null, null)).isInstanceOf(ValidationException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void recentShortRangesUseMinutes() {
+        OrderStatsDTO stats = service.findStats(LocalDateTime.now().minusHours(1), null, null);
+
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.MINUTE);
+        verify(repository).findSeries(eq("minute"), any(), any());
+    }
+
+    @Test
+    void rangesWithTooManyMinutesUseHours() {
+        // 5 hours of minutes are still kept, but exceed 100 points
+        OrderStatsDTO stats = service.findStats(LocalDateTime.now().minusHours(5), null, null);
+
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.HOUR);
+    }
+
+    @Test
+    void rangesOlderThanTheMinuteRetentionUseHours() {
+        LocalDateTime from = LocalDateTime.now().minusDays(2);
+
+        OrderStatsDTO stats = service.findStats(from, from.plusMinutes(30), null);
+
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.HOUR);
+        assertThat(stats.from()).isEqualTo(StatsGranularity.HOUR.truncate(from));
+    }
+
+    @Test
+    void rangesOlderThanTheHourRetentionUseDays() {
+        OrderStatsDTO stats = service.findStats(LocalDateTime.now().minusDays(90), null, null);
+
+        assertThat(stats.granularity()).isEqualTo(StatsGranularity.DAY);
+        verify(repository).findSeries(eq("day"), any(), any());
+    }
+
+    @Test
+    void requestedGranularityMustStillBeKeptAndFitTheMaxPoints() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThatThrownBy(() -> service.findStats(now.minusDays(1), null, StatsGranularity.MINUTE))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("only kept since");
+        assertThatThrownBy(() -> service.findStats(now.minusDays(8), null, StatsGranularity.HOUR))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("only kept since");
+        assertThatThrownBy(() -> service.findStats(now.minusYears(2), null, StatsGranularity.DAY))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("more than 100 buckets");
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void rowsAreGroupedIntoPointsAndTotals() {
+        LocalDateTime from = StatsGranularity.HOUR.truncate(LocalDateTime.now().minusHours(3));
+        List<OrderStatsRow> rows = List.of(
+                row(from, PaymentMethod.PIX, 3, "300.00", 1, "100.00"),
+                row(from, PaymentMethod.CASH, 1, "50.00", 0, "0"),
+                row(from.plusHours(1), PaymentMethod.PIX, 2, "200.00", 0, "0"));
+        when(repository.findSeries(anyString(), any(), any())).thenReturn(rows);
+
+        OrderStatsDTO stats = service.findStats(from, null, StatsGranularity.HOUR);
+
+        assertThat(stats.points()).hasSize(2);
+        assertThat(stats.points().getFirst()).satisfies(point -> {
+            assertThat(point.bucketStart()).isEqualTo(from);
+            assertThat(point.orderCount()).isEqualTo(4);
+            assertThat(point.netRevenue()).isEqualByComparingTo("250.00");
+            assertThat(point.cancellationRate()).isEqualTo(0.25);
+            assertThat(point.ordersByPaymentMethod()).containsEntry(PaymentMethod.PIX, 3L).containsEntry(PaymentMethod.CASH, 1L);
+        });
+        assertThat(stats.total().orderCount()).isEqualTo(6);
+        assertThat(stats.total().revenue()).isEqualByComparingTo("550.00");
+        assertThat(stats.total().cancelledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cancellationsAreCountedInTheBucketOfTheOrdersCreation() {
+        LocalDateTime created = LocalDateTime.of(2024, 3, 1, 10, 15, 42);
+        List<StatusTransitionRow> rows = List.of(
+                transition(1L, created, PaymentMethod.PIX, "100.00"),
+                transition(2L, created.plusSeconds(5), PaymentMethod.PIX, "50.00"),
+                transition(3L, created.plusDays(2), PaymentMethod.PIX, null));
+
+        service.recordTransitions(OrderStatus.CANCELLED, rows);
+        service.recordTransitions(OrderStatus.SHIPPED, rows);
+
+        verify(repository).add(LocalDateTime.of(2024, 3, 1, 10, 15), "PIX", 0, BigDecimal.ZERO, 2, new BigDecimal("150.00"));
+        verify(repository).add(LocalDateTime.of(2024, 3, 3, 10, 15), "PIX", 0, BigDecimal.ZERO, 1, BigDecimal.ZERO);
+        verifyNoMoreInteractions(repository);
+    }
+
+    private static StatusTransitionRow transition(Long id, LocalDateTime createdAt, PaymentMethod method, String totalPrice) {
+        return new Transition(id, 7L, OrderStatus.PENDING.name(), 1L, method,
+                totalPrice == null ? null : new BigDecimal(totalPrice), createdAt);
+    }
+
+    private static OrderStatsRow row(LocalDateTime bucketStart, PaymentMethod method, long orders, String revenue,
+                                     long cancelled, String cancelledRevenue) {
+        return new Row(bucketStart, method.name(), orders, new BigDecimal(revenue), cancelled, new BigDecimal(cancelledRevenue));
+    }
+
+    private record Transition(Long getId, Long getUserId, String getPreviousStatus, Long getVersion,
+                              PaymentMethod getPaymentMethod, BigDecimal getTotalPrice, LocalDateTime getCreatedAt)
+            implements StatusTransitionRow {
+    }
+
+    private record Row(LocalDateTime getBucketStart, String getPaymentMethod, Long getOrderCount, BigDecimal getRevenue,
+                       Long getCancelledCount, BigDecimal getCancelledRevenue) implements OrderStatsRow {
+    }
+}
@@ -0,0 +1,258 @@
+package com.ms.order.service;
+
+import com.ms.order.TestcontainersConfiguration;
+import com.ms.order.auth.CurrentUserService;
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.OrderCancelledEvent;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.StatusTransitionResult;
+import com.ms.order.dto.StatusTransitionResult.Outcome;
+import com.ms.order.dto.StockUpdateFailedEvent;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.repository.OrderRepository;
+import com.ms.order.repository.TransitionedOrderRow;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The conditional status UPDATE of {@link OrderRepository#transitionStatus} against PostgreSQL, where its
+ * row lock actually serializes concurrent transitions. Not transactional: each call commits on its own,
+ * as in production, so the rows are removed after every test.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestcontainersConfiguration.class, OrderService.class, OrderDTOAssembler.class, OrderDTOCache.class,
+        RecentCheckoutFilter.class, ProductLookupService.class, ProductLookupBatcher.class, ResilientProductClient.class,
+        ProductCatalogCache.class, JacksonAutoConfiguration.class})
+class OrderStatusTransitionPostgresTest {
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private OrderProducer orderProducer;
+
+    @MockitoBean
+    private CurrentUserService currentUserService;
+
+    @MockitoBean
+    private UserOrderSummaryService userOrderSummaryService;
+
+    @MockitoBean
+    private OrderStatsService orderStatsService;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM order_items");
+        jdbcTemplate.execute("DELETE FROM orders");
+    }
+
+    @Test
+    void transitionIsAppliedOnlyFromAllowedSourcesAtTheExpectedVersionAndOwner() {
+        Long id = saveOrder();
+        List<String> pending = List.of(OrderStatus.PENDING.name());
+
+        assertThat(repository.transitionStatus(id, pending, "PROCESSING", 1L, null, LocalDateTime.now())).isEmpty();
+        assertThat(repository.transitionStatus(id, pending, "PROCESSING", null, USER_ID + 1, LocalDateTime.now())).isEmpty();
+
+        Optional<TransitionedOrderRow> applied = repository.transitionStatus(id, pending, "PROCESSING", 0L, USER_ID,
+                LocalDateTime.now());
+        assertThat(applied).hasValueSatisfying(row -> {
+            assertThat(row.getId()).isEqualTo(id);
+            assertThat(row.getUserId()).isEqualTo(USER_ID);
+            assertThat(row.getPreviousStatus()).isEqualTo("PENDING");
+            assertThat(row.getVersion()).isEqualTo(1L);
+            assertThat(row.getPaymentMethod()).isEqualTo(PaymentMethod.PIX);
+            assertThat(row.getTotalQuantity()).isEqualTo(2);
+            assertThat(row.getTotalPrice()).isEqualByComparingTo("300.00");
+        });
+
+        // No longer PENDING: the same transition does not apply twice
+        assertThat(repository.transitionStatus(id, pending, "PROCESSING", null, null, LocalDateTime.now())).isEmpty();
+        assertThat(repository.findStatusById(id)).hasValueSatisfying(order -> {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.PROCESSING);
+            assertThat(order.getVersion()).isEqualTo(1L);
+        });
+    }
+
+    @Test
+    void cancellationLoadsNoEntityAndAnswersFromTheItemSnapshots() {
+        Long id = saveOrder();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderDTO order = orderService.cancelOrder(id, USER_ID, 0L);
+
+        // The conditional UPDATE ... RETURNING and the item projection; the outbox insert is the mocked producer's
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        verify(productService, never()).findProductsByIds(anySet());
+
+        ArgumentCaptor<OrderCancelledEvent> event = ArgumentCaptor.forClass(OrderCancelledEvent.class);
+        verify(orderProducer).publishOrderCancelledEvent(event.capture());
+        assertThat(event.getValue().orderId()).isEqualTo(id);
+        assertThat(event.getValue().userId()).isEqualTo(USER_ID);
+        assertThat(event.getValue().items()).containsExactly(new OrderCancelledEvent.CancelledItem(1L, 2));
+
+        assertThat(order.status()).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(order.version()).isEqualTo(1L);
+        assertThat(order.paymentMethod()).isEqualTo(PaymentMethod.PIX);
+        assertThat(order.totalQuantity()).isEqualTo(2);
+        assertThat(order.totalPrice()).isEqualByComparingTo("300.00");
+        assertThat(order.items()).singleElement().satisfies(item -> {
+            assertThat(item.name()).isEqualTo("Keyboard");
+            assertThat(item.productId()).isEqualTo(1L);
+            assertThat(item.quantity()).isEqualTo(2);
+            assertThat(item.priceAmount()).isEqualByComparingTo("150.00");
+            assertThat(item.totalPrice()).isEqualByComparingTo("300.00");
+        });
+    }
+
+    @Test
+    void cancellationRacingAStockFailureIsAppliedOnce() throws Exception {
+        Long id = saveOrder();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The user's cancellation holds the row lock until released
+            Future<OrderDTO> cancellation = executor.submit(() -> transactionTemplate.execute(status -> {
+                OrderDTO order = orderService.cancelOrder(id, USER_ID, null);
+                cancelled.countDown();
+                awaitUninterruptibly(release);
+                return order;
+            }));
+            assertThat(cancelled.await(10, SECONDS)).isTrue();
+
+            Future<?> stockFailure = executor.submit(() -> orderService.handleStockUpdateFailure(
+                    new StockUpdateFailedEvent(id, USER_ID, Map.of(1L, 2), "out of stock")));
+            awaitBlockedOnRowLock();
+            release.countDown();
+
+            assertThat(cancellation.get(10, SECONDS).status()).isEqualTo(OrderStatus.CANCELLED);
+            stockFailure.get(10, SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(repository.findStatusById(id)).hasValueSatisfying(order -> {
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.CANCELLED);
+            assertThat(order.getVersion()).isEqualTo(1L);
+        });
+        verify(orderProducer, times(1)).publishOrderCancelledEvent(any());
+        verify(userOrderSummaryService, times(1)).recordTransitions(eq(OrderStatus.CANCELLED), anyList());
+        verify(orderStatsService, times(1)).recordTransitions(eq(OrderStatus.CANCELLED), anyList());
+    }
+
+    @Test
+    void bulkCancellationRestoresTheStockOfEveryCancelledOrder() {
+        Long first = saveOrder();
+        Long second = saveOrder();
+        Long delivered = saveOrder();
+        jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED' WHERE id = ?", delivered);
+
+        List<StatusTransitionResult> results = orderService.transitionStatuses(OrderStatus.CANCELLED,
+                List.of(first, delivered, second));
+
+        assertThat(results).extracting(StatusTransitionResult::outcome)
+                .containsExactly(Outcome.APPLIED, Outcome.INVALID_TRANSITION, Outcome.APPLIED);
+        ArgumentCaptor<OrderCancelledEvent> events = ArgumentCaptor.forClass(OrderCancelledEvent.class);
+        verify(orderProducer, times(2)).publishOrderCancelledEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(OrderCancelledEvent::orderId).containsExactlyInAnyOrder(first, second);
+        assertThat(events.getAllValues()).allSatisfy(event -> {
+            assertThat(event.userId()).isEqualTo(USER_ID);
+            assertThat(event.items()).containsExactly(new OrderCancelledEvent.CancelledItem(1L, 2));
+        });
+    }
+
+    private Long saveOrder() {
+        Order order = Order.builder()
+                .userId(USER_ID)
+                .status(OrderStatus.PENDING)
+                .paymentMethod(PaymentMethod.PIX)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        OrderItem item = new OrderItem(1L, 2, "Keyboard", new BigDecimal("150.00"));
+        item.setOrder(order);
+        order.setItems(new ArrayList<>(List.of(item)));
+        order.updateTotals();
+        return repository.save(order).getId();
+    }
+
+    private void awaitBlockedOnRowLock() throws InterruptedException {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity "
+                + "WHERE datname = current_database() AND wait_event_type = 'Lock'", Long.class) == 0) {
+            assertThat(System.nanoTime()).as("a transaction waiting on the order row").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
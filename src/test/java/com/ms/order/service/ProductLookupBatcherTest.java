@@ -0,0 +1,116 @@
+package com.ms.order.service;
+
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.InternalProductDTO;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductLookupBatcherTest {
+
+    private final List<Set<Long>> calls = new CopyOnWriteArrayList<>();
+
+    private final List<Authentication> callers = new CopyOnWriteArrayList<>();
+
+    private final List<Observation> observations = new CopyOnWriteArrayList<>();
+
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+
+    private final ObservationRegistry previousObservationRegistry = ObservationThreadLocalAccessor.getInstance().getObservationRegistry();
+
+    // Knows every product except 99
+    private final ProductService productService = ids -> {
+        calls.add(Set.copyOf(ids));
+        callers.add(SecurityContextHolder.getContext().getAuthentication());
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current != null) {
+            observations.add(current);
+        }
+        return ids.stream()
+                .filter(id -> id != 99L)
+                .map(id -> new InternalProductDTO(id, "Product " + id, "", BigDecimal.TEN, 1))
+                .toList();
+    };
+
+    private final ProductLookupBatcher batcher = new ProductLookupBatcher(
+            new ResilientProductClient(productService, 50, Duration.ZERO, 50,
+                    Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ZERO),
+            Duration.ofMillis(200), 10, 4);
+
+    @BeforeEach
+    void setUp() {
+        observationRegistry.observationConfig().observationHandler(context -> true);
+        ObservationThreadLocalAccessor.getInstance().setObservationRegistry(observationRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+        SecurityContextHolder.clearContext();
+        ObservationThreadLocalAccessor.getInstance().setObservationRegistry(previousObservationRegistry);
+    }
+
+    @Test
+    void concurrentCallersShareOneCallAndGetTheirOwnProducts() {
+        List<CompletableFuture<Map<Long, InternalProductDTO>>> results = new ArrayList<>();
+        for (Set<Long> ids : List.of(Set.of(1L, 2L), Set.of(2L, 3L), Set.of(4L, 99L))) {
+            results.add(CompletableFuture.supplyAsync(() -> batcher.findProductsByIds(ids)));
+        }
+
+        assertThat(results.get(0).join()).containsOnlyKeys(1L, 2L);
+        assertThat(results.get(1).join()).containsOnlyKeys(2L, 3L);
+        assertThat(results.get(2).join()).containsOnlyKeys(4L);
+        assertThat(calls).singleElement().isEqualTo(Set.of(1L, 2L, 3L, 4L, 99L));
+    }
+
+    @Test
+    void largeLookupsAreSplitAtTheMaxBatchSize() {
+        Set<Long> ids = Set.copyOf(LongStream.rangeClosed(1, 25).boxed().toList());
+
+        assertThat(batcher.findProductsByIds(ids)).hasSize(25);
+        assertThat(calls).hasSize(3).allSatisfy(call -> assertThat(call).hasSizeLessThanOrEqualTo(10));
+    }
+
+    @Test
+    void sharedBatchesCarryTheTraceButNoCallersAuthentication() {
+        List<Observation> requests = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Map<Long, InternalProductDTO>>> results = new ArrayList<>();
+        for (String user : List.of("7", "8")) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, "ROLE_USER"));
+                Observation request = Observation.start("request-" + user, observationRegistry);
+                requests.add(request);
+                try (Observation.Scope scope = request.openScope()) {
+                    return batcher.findProductsByIds(Set.of(1L, 2L));
+                } finally {
+                    request.stop();
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+
+        results.forEach(CompletableFuture::join);
+        assertThat(calls).singleElement();
+        assertThat(callers).containsExactly((Authentication) null);
+        // The request that opened the batch
+        assertThat(observations).singleElement().isIn(requests);
+    }
+}
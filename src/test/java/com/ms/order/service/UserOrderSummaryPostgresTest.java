@@ -0,0 +1,203 @@
+package com.ms.order.service;
+
+import com.ms.order.TestcontainersConfiguration;
+import com.ms.order.auth.CurrentUserService;
+import com.ms.order.client.ProductService;
+import com.ms.order.dto.CreateOrderDTO;
+import com.ms.order.dto.InternalProductDTO;
+import com.ms.order.dto.OrderDTO;
+import com.ms.order.dto.StockUpdateFailedEvent;
+import com.ms.order.dto.UserOrderSummaryDTO;
+import com.ms.order.enums.OrderStatus;
+import com.ms.order.enums.PaymentMethod;
+import com.ms.order.model.Order;
+import com.ms.order.model.OrderItem;
+import com.ms.order.producer.OrderProducer;
+import com.ms.order.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.when;
+
+/**
+ * The user_order_summary upserts and rebuild against PostgreSQL. Not transactional: each operation commits
+ * on its own, as in production, so the rows are removed after every test.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestcontainersConfiguration.class, OrderService.class, UserOrderSummaryService.class, OrderDTOAssembler.class,
+        OrderDTOCache.class, RecentCheckoutFilter.class, ProductLookupService.class, ProductLookupBatcher.class,
+        ResilientProductClient.class, ProductCatalogCache.class, JacksonAutoConfiguration.class})
+class UserOrderSummaryPostgresTest {
+
+    private static final long USER_ID = 7L;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserOrderSummaryService userOrderSummaryService;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductService productService;
+
+    @MockitoBean
+    private OrderProducer orderProducer;
+
+    @MockitoBean
+    private CurrentUserService currentUserService;
+
+    @MockitoBean
+    private OrderStatsService orderStatsService;
+
+    @BeforeEach
+    void setUp() {
+        productCatalogCache.invalidateAll();
+        when(productService.findProductsByIds(anySet())).thenReturn(List.of(
+                new InternalProductDTO(1L, "Keyboard", "", new BigDecimal("150.00"), 10)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM order_items");
+        jdbcTemplate.execute("DELETE FROM orders");
+        jdbcTemplate.execute("DELETE FROM user_order_summary");
+    }
+
+    @Test
+    void summaryFollowsCreationCancellationAndStockFailure() {
+        List<OrderDTO> orders = orderService.createOrders(List.of(checkout(USER_ID), checkout(USER_ID), checkout(USER_ID)));
+
+        UserOrderSummaryDTO created = userOrderSummaryService.findByUserId(USER_ID);
+        assertThat(created.orderCount()).isEqualTo(3);
+        assertThat(created.totalSpent()).isEqualByComparingTo("900.00");
+        assertThat(created.ordersByStatus()).containsEntry(OrderStatus.PENDING, 3L);
+
+        orderService.cancelOrder(orders.get(0).id(), USER_ID, null);
+        orderService.handleStockUpdateFailure(new StockUpdateFailedEvent(orders.get(1).id(), USER_ID, Map.of(1L, 2), "out of stock"));
+        orderService.transitionStatuses(OrderStatus.PROCESSING, List.of(orders.get(2).id()));
+
+        UserOrderSummaryDTO changed = userOrderSummaryService.findByUserId(USER_ID);
+        assertThat(changed.orderCount()).isEqualTo(3);
+        assertThat(changed.totalSpent()).isEqualByComparingTo("300.00");
+        assertThat(changed.ordersByStatus()).containsEntry(OrderStatus.PENDING, 0L)
+                .containsEntry(OrderStatus.PROCESSING, 1L)
+                .containsEntry(OrderStatus.CANCELLED, 2L);
+
+        // A drifted summary is recomputed to the same values the increments produced
+        jdbcTemplate.update("UPDATE user_order_summary SET order_count = 0, total_spent = 0, cancelled_count = 0");
+        transactionTemplate.executeWithoutResult(status -> userOrderSummaryService.rebuild(List.of(USER_ID)));
+
+        assertThat(userOrderSummaryService.findByUserId(USER_ID)).usingRecursiveComparison()
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(changed);
+    }
+
+    @Test
+    void rebuildOfAUserWithoutSummaryKeepsAConcurrentFirstOrder() throws Exception {
+        saveOrderWithoutSummary();
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The new order and its summary upsert are written but not committed yet
+            Future<?> creation = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                orderService.createOrders(List.of(checkout(USER_ID)));
+                created.countDown();
+                awaitUninterruptibly(release);
+            }));
+            assertThat(created.await(10, SECONDS)).isTrue();
+
+            Future<?> rebuild = executor.submit(() -> transactionTemplate.executeWithoutResult(
+                    status -> userOrderSummaryService.rebuild(List.of(USER_ID))));
+            awaitBlockedOnRowLock();
+            release.countDown();
+
+            creation.get(10, SECONDS);
+            rebuild.get(10, SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        UserOrderSummaryDTO summary = userOrderSummaryService.findByUserId(USER_ID);
+        assertThat(summary.orderCount()).isEqualTo(2);
+        assertThat(summary.totalSpent()).isEqualByComparingTo("600.00");
+        assertThat(summary.ordersByStatus()).containsEntry(OrderStatus.PENDING, 2L);
+    }
+
+    private static CreateOrderDTO checkout(long userId) {
+        return new CreateOrderDTO(userId, List.of(new CreateOrderDTO.CreateOrderItemDTO(1L, 2)), PaymentMethod.PIX, null);
+    }
+
+    // An order whose summary was lost, as the rebuild job repairs
+    private void saveOrderWithoutSummary() {
+        Order order = Order.builder()
+                .userId(USER_ID)
+                .status(OrderStatus.PENDING)
+                .paymentMethod(PaymentMethod.PIX)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        OrderItem item = new OrderItem(1L, 2, "Keyboard", new BigDecimal("150.00"));
+        item.setOrder(order);
+        order.setItems(new ArrayList<>(List.of(item)));
+        order.updateTotals();
+        repository.save(order);
+    }
+
+    private void awaitBlockedOnRowLock() throws InterruptedException {
+        long deadline = System.nanoTime() + SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity "
+                + "WHERE datname = current_database() AND wait_event_type = 'Lock'", Long.class) == 0) {
+            assertThat(System.nanoTime()).as("the rebuild waiting on the new summary").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}